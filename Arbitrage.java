@@ -1,13 +1,34 @@
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 interface Graph<T> {
     boolean add(T vertex);
@@ -25,18 +46,23 @@ interface Graph<T> {
 
 class AdjacencyListGraph<T> implements Graph<T> {
     private Map<T, List<T>> adjacencyMap;
+    /**Indice inverso: para cada vertice guardamos la lista de sus predecesores, asi
+     * getInwardEdges y remove no tienen que recorrer todo el adjacencyMap.*/
+    private Map<T, List<T>> predecessorMap;
 
     //Metodo Constructor
     public AdjacencyListGraph() {
         adjacencyMap = new HashMap<>();
+        predecessorMap = new HashMap<>();
     }
 
     //Metodo add
     public boolean add(T vertex) {
         //Verificamos si el vertice que queremos agregar ya pertenece al HashMap.
         if (!contains(vertex)) {
-            //Si no pertenece es agregado al HashMap y se retorna true.
+            //Si no pertenece es agregado a ambos HashMap y se retorna true.
             adjacencyMap.put(vertex, new ArrayList<>());
+            predecessorMap.put(vertex, new ArrayList<>());
             return true;
         }
         //Si pertenece se retorna false.
@@ -54,6 +80,8 @@ class AdjacencyListGraph<T> implements Graph<T> {
             if (!sucesores.contains(to)) {
                 //Si no existe lo agregamos usando .add
                 sucesores.add(to);
+                //Mantenemos el indice inverso: from pasa a ser predecesor de to.
+                predecessorMap.get(to).add(from);
                 return true;
             }
         }
@@ -73,7 +101,11 @@ class AdjacencyListGraph<T> implements Graph<T> {
              * Esta llamada devuelve true si el elemento se encontraba en la lista y se 
              * eliminó exitosamente, y devuelve false si el elemento no se encontraba en
              *  la lista*/
-            return sucesores.remove(to);
+            if (sucesores.remove(to)) {
+                //Si el arco existia, tambien lo quitamos del indice inverso.
+                predecessorMap.get(to).remove(from);
+                return true;
+            }
         }
         return false;
     }
@@ -89,24 +121,15 @@ class AdjacencyListGraph<T> implements Graph<T> {
 
     //Metodo GetInwardEdges
     public List<T> getInwardEdges(T to) {
-        /**Creamos una lista nueva para almacenar los vértices que tienen arcos 
-         * hacia el vertice to.*/
-        List<T> predecesores = new ArrayList<>();
-        /**Usamos el metodo .keyset() de la clase HashMap para iterar sobre todos los 
-         * vertices del mapa.*/
-        for (T vertex : adjacencyMap.keySet()) {
-            /**Buscamos la lista de los sucesores del vertice vertex usando el metodo 
-             * .get() del HashMap.*/
-            List<T> sucesores = adjacencyMap.get(vertex);
-            /**Usamos el metodo .contains() de la clase ArrayList para verificar si la 
-             * lista de sucesores contiene al vertice to.*/
-            if (sucesores.contains(to)) {
-                /**Si es asi, entonces vertex es un predecesor de to, por lo que lo 
-                 * agregamos a la lista predecesores.*/
-                predecesores.add(vertex);
-            }
+        //Usamos contains() para verificar que el vertice to pertenezca al HashMap.
+        if (contains(to)) {
+            /**Si pertenece, el indice inverso ya tiene sus predecesores. Devolvemos una
+             * copia para que quien llame no pueda modificar el indice, lo que cuesta
+             * O(grado de entrada) en lugar de recorrer todo el grafo.*/
+            return new ArrayList<>(predecessorMap.get(to));
         }
-        return predecesores;
+        //Si to no pertenece al HashMap se retorna un ArrayList vacio.
+        return new ArrayList<>();
     }
 
     //Metodo GetOutwardEdges
@@ -149,14 +172,23 @@ class AdjacencyListGraph<T> implements Graph<T> {
         //Usamos contains() para verificar que el vertice vertex pertenezca al HashMap.
         if (contains(vertex)) {
             /**Si el vertice vertex pertenece, usamos el metodo .remove() de la clase
-             * HashMap para eliminarlo.*/
-            adjacencyMap.remove(vertex);
-            /**Usamos el metodo .values() de la clase HashMap para iterar sobre todos
-             * los valores del HashMap.*/
-            for (List<T> sucesores : adjacencyMap.values()) {
-                /**Usamos el método .remove() en cada lista de sucesores para eliminar 
-                 * el vértice vertex de todas las listas de sucesores.*/
-                sucesores.remove(vertex);
+             * HashMap para eliminarlo de ambos indices, guardando sus listas.*/
+            List<T> sucesores = adjacencyMap.remove(vertex);
+            List<T> predecesores = predecessorMap.remove(vertex);
+            /**Solo visitamos a los vecinos de vertex: cada sucesor deja de tenerlo como
+             * predecesor y cada predecesor deja de tenerlo como sucesor. Los lazos
+             * (vertex-vertex) ya no estan en los mapas, por eso revisamos null.*/
+            for (T sucesor : sucesores) {
+                List<T> lista = predecessorMap.get(sucesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
+            }
+            for (T predecesor : predecesores) {
+                List<T> lista = adjacencyMap.get(predecesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
             }
             return true;
         }
@@ -198,6 +230,224 @@ class AdjacencyListGraph<T> implements Graph<T> {
 
 }
 
+/**Grafo con un peso double en cada arco. Los pesos se guardan junto a la lista de
+ * adyacencia, asi getWeight es una busqueda en un HashMap y no un recorrido de lados.*/
+interface WeightedGraph<T> extends Graph<T> {
+    boolean connect(T from, T to, double weight);
+    double getWeight(T from, T to);
+    boolean setWeight(T from, T to, double weight);
+    void forEachOutwardEdge(T from, WeightedEdgeConsumer<T> consumer);
+}
+
+/**Recibe cada sucesor junto al peso del arco, sin crear objetos por arco.*/
+interface WeightedEdgeConsumer<T> {
+    void accept(T to, double weight);
+}
+
+class WeightedAdjacencyListGraph<T> implements WeightedGraph<T> {
+    /**Sucesores de un vertice: destinos[i] tiene peso pesos[i], y posicion guarda en que
+     * indice esta cada destino para encontrar su peso en O(1).*/
+    private static class Vecinos<T> {
+        private List<T> destinos = new ArrayList<>();
+        private double[] pesos = new double[4];
+        private Map<T, Integer> posicion = new HashMap<>();
+
+        private void agregar(T to, double weight) {
+            int i = destinos.size();
+            if (i == pesos.length) {
+                pesos = Arrays.copyOf(pesos, i * 2);
+            }
+            destinos.add(to);
+            pesos[i] = weight;
+            posicion.put(to, i);
+        }
+
+        /**Quita el destino moviendo el ultimo a su lugar, para que el borrado sea O(1)
+         * y las posiciones de los demas destinos sigan siendo validas.*/
+        private boolean quitar(T to) {
+            Integer i = posicion.remove(to);
+            if (i == null) {
+                return false;
+            }
+            int ultimo = destinos.size() - 1;
+            T movido = destinos.remove(ultimo);
+            if (i != ultimo) {
+                destinos.set(i, movido);
+                pesos[i] = pesos[ultimo];
+                posicion.put(movido, i);
+            }
+            return true;
+        }
+    }
+
+    private Map<T, Vecinos<T>> adjacencyMap;
+    private Map<T, List<T>> predecessorMap;
+
+    //Metodo Constructor
+    public WeightedAdjacencyListGraph() {
+        adjacencyMap = new HashMap<>();
+        predecessorMap = new HashMap<>();
+    }
+
+    //Metodo add
+    public boolean add(T vertex) {
+        if (!contains(vertex)) {
+            adjacencyMap.put(vertex, new Vecinos<>());
+            predecessorMap.put(vertex, new ArrayList<>());
+            return true;
+        }
+        return false;
+    }
+
+    //Metodo Connect: sin peso explicito el arco vale 1, el neutro de una tasa.
+    public boolean connect(T from, T to) {
+        return connect(from, to, 1.0);
+    }
+
+    /**Metodo Connect con peso. Igual que connect(), si el arco from-to ya existe no se
+     * agrega otra vez (ni se cambia su peso) y se retorna false.*/
+    public boolean connect(T from, T to, double weight) {
+        if (contains(from) && contains(to)) {
+            Vecinos<T> sucesores = adjacencyMap.get(from);
+            if (!sucesores.posicion.containsKey(to)) {
+                sucesores.agregar(to, weight);
+                predecessorMap.get(to).add(from);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Metodo Disconnect
+    public boolean disconnect(T from, T to) {
+        if (contains(from) && contains(to)) {
+            if (adjacencyMap.get(from).quitar(to)) {
+                predecessorMap.get(to).remove(from);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Metodo GetWeight: devuelve el peso del arco o NaN si el arco no existe.
+    public double getWeight(T from, T to) {
+        Vecinos<T> sucesores = adjacencyMap.get(from);
+        if (sucesores != null) {
+            Integer i = sucesores.posicion.get(to);
+            if (i != null) {
+                return sucesores.pesos[i];
+            }
+        }
+        return Double.NaN;
+    }
+
+    //Metodo SetWeight: cambia el peso de un arco existente; si no existe retorna false.
+    public boolean setWeight(T from, T to, double weight) {
+        Vecinos<T> sucesores = adjacencyMap.get(from);
+        if (sucesores != null) {
+            Integer i = sucesores.posicion.get(to);
+            if (i != null) {
+                sucesores.pesos[i] = weight;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Metodo ForEachOutwardEdge
+    public void forEachOutwardEdge(T from, WeightedEdgeConsumer<T> consumer) {
+        Vecinos<T> sucesores = adjacencyMap.get(from);
+        if (sucesores != null) {
+            for (int i = 0; i < sucesores.destinos.size(); i++) {
+                consumer.accept(sucesores.destinos.get(i), sucesores.pesos[i]);
+            }
+        }
+    }
+
+    //Metodo Contains
+    public boolean contains(T vertex) {
+        return adjacencyMap.containsKey(vertex);
+    }
+
+    //Metodo GetInwardEdges
+    public List<T> getInwardEdges(T to) {
+        if (contains(to)) {
+            return new ArrayList<>(predecessorMap.get(to));
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetOutwardEdges
+    public List<T> getOutwardEdges(T from) {
+        if (contains(from)) {
+            return adjacencyMap.get(from).destinos;
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<T> getVerticesConnectedTo(T vertex) {
+        if (contains(vertex)) {
+            Set<T> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            return new ArrayList<>(adjacentVertex);
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<T> getAllVertices() {
+        return new ArrayList<>(adjacencyMap.keySet());
+    }
+
+    //Metodo Remove
+    public boolean remove(T vertex) {
+        if (contains(vertex)) {
+            Vecinos<T> sucesores = adjacencyMap.remove(vertex);
+            List<T> predecesores = predecessorMap.remove(vertex);
+            for (T sucesor : sucesores.destinos) {
+                List<T> lista = predecessorMap.get(sucesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
+            }
+            for (T predecesor : predecesores) {
+                Vecinos<T> vecinos = adjacencyMap.get(predecesor);
+                if (vecinos != null) {
+                    vecinos.quitar(vertex);
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    //Metodo Size
+    public int size() {
+        return adjacencyMap.size();
+    }
+
+    //Metodo Subgraph: el subgrafo conserva los pesos de los arcos.
+    public Graph<T> subgraph(Collection<T> vertices) {
+        WeightedAdjacencyListGraph<T> subgraph = new WeightedAdjacencyListGraph<>();
+        for (T vertex : vertices) {
+            if (contains(vertex)) {
+                subgraph.add(vertex);
+            }
+        }
+        for (T vertex : vertices) {
+            if (contains(vertex)) {
+                forEachOutwardEdge(vertex, (sucesor, peso) -> {
+                    if (subgraph.contains(sucesor)) {
+                        subgraph.connect(vertex, sucesor, peso);
+                    }
+                });
+            }
+        }
+        return subgraph;
+    }
+}
+
 class Lado {
     private String from;
     private String to;
@@ -220,93 +470,2279 @@ class Lado {
     public double getCost() {
         return cost;
     }
-}
 
-public class Arbitrage {
-    public static boolean esLado(String v, String u, Lado lado) {
-        String x = lado.getV();
-        String y = lado.getU();
-        if (x.equals(v) && y.equals(u)) {
-            return true;
-        } else {
+    /**Dos lados son iguales si unen las mismas monedas en el mismo sentido, sin importar
+     * la tasa: asi un lado se busca o se reemplaza por su par (from, to) y una tasa que se
+     * vuelve a cotizar no queda como un segundo lado en el mismo conjunto.*/
+    public boolean equals(Object o) {
+        if (!(o instanceof Lado)) {
             return false;
         }
+        Lado otro = (Lado) o;
+        return from.equals(otro.from) && to.equals(otro.to);
     }
 
-    public static boolean calculo(double i, int loop, String v, String u, Graph<String> graph, HashSet<Lado> lados, HashSet<String> visitados) {
-        if (loop != 0 && loop <= graph.size() - 1) {
-            if (v == u) {
-                visitados.clear();
-                if (i > 1) {
-                    return true;
+    public int hashCode() {
+        return Objects.hash(from, to);
+    }
+}
+
+/**Ciclo de arbitraje encontrado: las monedas en el orden en que se cambian (se vuelve
+ * a la primera al final) y el factor por el que se multiplica el dinero al recorrerlo.*/
+class Ciclo {
+    private List<String> monedas;
+    private double ganancia;
+
+    public Ciclo(List<String> monedas, double ganancia) {
+        this.monedas = monedas;
+        this.ganancia = ganancia;
+    }
+
+    public List<String> getMonedas() {
+        return monedas;
+    }
+
+    public double getGanancia() {
+        return ganancia;
+    }
+
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        for (String moneda : monedas) {
+            texto.append(moneda).append(" -> ");
+        }
+        texto.append(monedas.get(0)).append(" (x").append(ganancia).append(")");
+        return texto.toString();
+    }
+}
+
+/**Copia compacta de la red de tasas: cada moneda tiene un id denso y los lados salientes
+ * de la moneda v ocupan las posiciones offsets[v]..offsets[v+1]-1 de destinos, tasas y
+ * pesos. El peso es -log(tasa), asi un ciclo con producto de tasas mayor que 1 es un
+ * ciclo de peso negativo.*/
+class RedTasas {
+    private String[] nombres;
+    private Map<String, Integer> ids;
+    private int[] offsets;
+    private int[] destinos;
+    private double[] tasas;
+    private double[] pesos;
+
+    private RedTasas(String[] nombres, Map<String, Integer> ids, int[] offsets, int[] destinos, double[] tasas) {
+        this.nombres = nombres;
+        this.ids = ids;
+        this.offsets = offsets;
+        this.destinos = destinos;
+        this.tasas = tasas;
+        this.pesos = new double[tasas.length];
+        for (int i = 0; i < tasas.length; i++) {
+            pesos[i] = -Math.log(tasas[i]);
+        }
+    }
+
+    /**Construye la red con los vertices del grafo y los lados cuyo arco existe en el. En
+     * un conjunto cada par aparece una vez; si la coleccion es una lista que repite un par,
+     * cada copia queda como un lado, como en calculo.*/
+    public static RedTasas de(Graph<String> graph, Collection<Lado> lados) {
+        List<String> monedas = graph.getAllVertices();
+        int n = monedas.size();
+        String[] nombres = monedas.toArray(new String[n]);
+        Map<String, Integer> ids = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            ids.put(nombres[v], v);
+        }
+        List<Lado> validos = new ArrayList<>();
+        int[] offsets = new int[n + 1];
+        for (Lado lado : lados) {
+            Integer v = ids.get(lado.getV());
+            if (v != null && ids.containsKey(lado.getU()) && lado.getCost() > 0) {
+                validos.add(lado);
+                offsets[v + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] cursor = Arrays.copyOf(offsets, n);
+        int[] destinos = new int[validos.size()];
+        double[] tasas = new double[validos.size()];
+        for (Lado lado : validos) {
+            int i = cursor[ids.get(lado.getV())]++;
+            destinos[i] = ids.get(lado.getU());
+            tasas[i] = lado.getCost();
+        }
+        return new RedTasas(nombres, ids, offsets, destinos, tasas);
+    }
+
+    //Construye la red directamente desde los pesos guardados en el grafo.
+    public static RedTasas de(WeightedGraph<String> graph) {
+        List<String> monedas = graph.getAllVertices();
+        int n = monedas.size();
+        String[] nombres = monedas.toArray(new String[n]);
+        Map<String, Integer> ids = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            ids.put(nombres[v], v);
+        }
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int fila = v + 1;
+            graph.forEachOutwardEdge(nombres[v], (to, tasa) -> {
+                if (tasa > 0) {
+                    offsets[fila]++;
+                }
+            });
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] cursor = Arrays.copyOf(offsets, n);
+        int[] destinos = new int[offsets[n]];
+        double[] tasas = new double[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            int fila = v;
+            graph.forEachOutwardEdge(nombres[v], (to, tasa) -> {
+                if (tasa > 0) {
+                    int i = cursor[fila]++;
+                    destinos[i] = ids.get(to);
+                    tasas[i] = tasa;
+                }
+            });
+        }
+        return new RedTasas(nombres, ids, offsets, destinos, tasas);
+    }
+
+    /**Red con solo las monedas indicadas y los lados entre ellas. Se usa para correr
+     * el detector sobre una componente fuerte sin tocar el resto de la red.*/
+    public RedTasas subred(List<Integer> miembros) {
+        int n = miembros.size();
+        String[] subNombres = new String[n];
+        Map<String, Integer> subIds = new HashMap<>();
+        for (int k = 0; k < n; k++) {
+            subNombres[k] = nombres[miembros.get(k)];
+            subIds.put(subNombres[k], k);
+        }
+        int[] subOffsets = new int[n + 1];
+        int m = 0;
+        for (int k = 0; k < n; k++) {
+            int v = miembros.get(k);
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                if (subIds.containsKey(nombres[destinos[i]])) {
+                    m++;
+                }
+            }
+            subOffsets[k + 1] = m;
+        }
+        int[] subDestinos = new int[m];
+        double[] subTasas = new double[m];
+        m = 0;
+        for (int k = 0; k < n; k++) {
+            int v = miembros.get(k);
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                Integer w = subIds.get(nombres[destinos[i]]);
+                if (w != null) {
+                    subDestinos[m] = w;
+                    subTasas[m] = tasas[i];
+                    m++;
+                }
+            }
+        }
+        return new RedTasas(subNombres, subIds, subOffsets, subDestinos, subTasas);
+    }
+
+    public int size() {
+        return nombres.length;
+    }
+
+    public String nombre(int v) {
+        return nombres[v];
+    }
+
+    //Devuelve el id de la moneda o -1 si no esta en la red.
+    public int id(String moneda) {
+        Integer v = ids.get(moneda);
+        if (v == null) {
+            return -1;
+        }
+        return v;
+    }
+
+    public int inicio(int v) {
+        return offsets[v];
+    }
+
+    public int fin(int v) {
+        return offsets[v + 1];
+    }
+
+    public int destino(int i) {
+        return destinos[i];
+    }
+
+    //Moneda de la que sale el lado i: la ultima fila cuyo offset es <= i.
+    public int origen(int i) {
+        int bajo = 0;
+        int alto = nombres.length - 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto + 1) >>> 1;
+            if (offsets[medio] <= i) {
+                bajo = medio;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return bajo;
+    }
+
+    public double tasa(int i) {
+        return tasas[i];
+    }
+
+    public double peso(int i) {
+        return pesos[i];
+    }
+}
+
+/**Componentes fuertemente conexas de una red de tasas con el algoritmo de Tarjan, usando
+ * una pila explicita en lugar de recursion. componente[v] es el numero de componente de
+ * la moneda v, entre 0 y cantidad-1.*/
+class ComponentesFuertes {
+    private int[] componente;
+    private int cantidad;
+
+    private ComponentesFuertes(int[] componente, int cantidad) {
+        this.componente = componente;
+        this.cantidad = cantidad;
+    }
+
+    public int getComponente(int v) {
+        return componente[v];
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public static ComponentesFuertes de(RedTasas red) {
+        int n = red.size();
+        int[] indice = new int[n];
+        int[] bajo = new int[n];
+        int[] componente = new int[n];
+        Arrays.fill(indice, -1);
+        Arrays.fill(componente, -1);
+        //Pila de la llamada: moneda y siguiente lado por revisar.
+        int[] llamada = new int[n];
+        int[] siguienteLado = new int[n];
+        //Pila de Tarjan con las monedas que aun no tienen componente.
+        int[] pila = new int[n];
+        int tope = 0;
+        int contador = 0;
+        int cantidad = 0;
+        for (int raiz = 0; raiz < n; raiz++) {
+            if (indice[raiz] != -1) {
+                continue;
+            }
+            int profundidad = 0;
+            llamada[0] = raiz;
+            siguienteLado[0] = red.inicio(raiz);
+            indice[raiz] = contador;
+            bajo[raiz] = contador;
+            contador++;
+            pila[tope++] = raiz;
+            while (profundidad >= 0) {
+                int v = llamada[profundidad];
+                if (siguienteLado[profundidad] < red.fin(v)) {
+                    int w = red.destino(siguienteLado[profundidad]++);
+                    if (indice[w] == -1) {
+                        indice[w] = contador;
+                        bajo[w] = contador;
+                        contador++;
+                        pila[tope++] = w;
+                        profundidad++;
+                        llamada[profundidad] = w;
+                        siguienteLado[profundidad] = red.inicio(w);
+                    } else if (componente[w] == -1) {
+                        bajo[v] = Math.min(bajo[v], indice[w]);
+                    }
                 } else {
-                    return false;
+                    //Terminamos v: si es raiz de su componente la sacamos de la pila.
+                    if (bajo[v] == indice[v]) {
+                        int w;
+                        do {
+                            w = pila[--tope];
+                            componente[w] = cantidad;
+                        } while (w != v);
+                        cantidad++;
+                    }
+                    profundidad--;
+                    if (profundidad >= 0) {
+                        int padre = llamada[profundidad];
+                        bajo[padre] = Math.min(bajo[padre], bajo[v]);
+                    }
                 }
             }
-        } else if (loop >= graph.size() - 1) {
-            visitados.clear();
-            return false;
         }
-        double j = i;
-        int disc = loop;
-        for (String sucesor : graph.getOutwardEdges(v)) {
-            if (!visitados.add(sucesor)) {
-                return false;
+        return new ComponentesFuertes(componente, cantidad);
+    }
+}
+
+/**Resultado del detector en una componente fuerte: sus monedas y el ciclo ganador que
+ * se encontro en ella, o null si no hay.*/
+class ResultadoComponente {
+    private List<String> monedas;
+    private Ciclo ciclo;
+
+    public ResultadoComponente(List<String> monedas, Ciclo ciclo) {
+        this.monedas = monedas;
+        this.ciclo = ciclo;
+    }
+
+    public List<String> getMonedas() {
+        return monedas;
+    }
+
+    public Ciclo getCiclo() {
+        return ciclo;
+    }
+}
+
+/**Detector de arbitraje con Bellman-Ford sobre los pesos -log(tasa). Todas las monedas
+ * empiezan con distancia 0 (como si hubiera un origen virtual unido a todas), y en cada
+ * ronda solo se relajan los lados de las monedas que mejoraron en la ronda anterior.
+ * Despues de cada ronda se busca un ciclo en el arbol de predecesores: si aparece, es un
+ * ciclo negativo y se devuelve sin esperar las n rondas. El peor caso es O(V*E).*/
+class DetectorArbitraje {
+    //Margen para no confundir errores de redondeo con ganancias reales.
+    static final double EPS = 1e-12;
+
+    public static Ciclo buscarCiclo(RedTasas red) {
+        return buscarCiclo(red, new double[red.size()]);
+    }
+
+    /**Igual que buscarCiclo(red), pero deja en dist (que debe empezar en 0) las distancias
+     * finales. Si no hay ciclo, dist[v] <= dist[u] + peso(u, v) para todo lado u-v.*/
+    public static Ciclo buscarCiclo(RedTasas red, double[] dist) {
+        int n = red.size();
+        int[] padre = new int[n];
+        int[] ladoPadre = new int[n];
+        Arrays.fill(padre, -1);
+        int[] frontera = new int[n];
+        int[] siguiente = new int[n];
+        int[] enSiguiente = new int[n];
+        int[] marca = new int[n];
+        int[] camino = new int[n];
+        int tamFrontera = n;
+        for (int v = 0; v < n; v++) {
+            frontera[v] = v;
+        }
+        for (int ronda = 1; tamFrontera > 0; ronda++) {
+            int tamSiguiente = 0;
+            for (int k = 0; k < tamFrontera; k++) {
+                int u = frontera[k];
+                for (int i = red.inicio(u); i < red.fin(u); i++) {
+                    int v = red.destino(i);
+                    double nueva = dist[u] + red.peso(i);
+                    if (nueva < dist[v] - EPS) {
+                        dist[v] = nueva;
+                        padre[v] = u;
+                        ladoPadre[v] = i;
+                        if (enSiguiente[v] != ronda) {
+                            enSiguiente[v] = ronda;
+                            siguiente[tamSiguiente++] = v;
+                        }
+                    }
+                }
             }
-            visitados.add(sucesor);
-            for (Lado lado : lados) {
-                if (esLado(v, sucesor, lado)) {
-                    i = i * lado.getCost();
-                    loop++;
-                    if (calculo(i, loop, sucesor, u, graph, lados, visitados)) {
-                        return true;
+            /**Buscamos un ciclo en los predecesores de las monedas que mejoraron. marca[v]
+             * dice en que ronda se visito v y camino[v] desde que moneda, asi cada moneda
+             * se recorre una sola vez por ronda.*/
+            for (int k = 0; k < tamSiguiente; k++) {
+                int v = siguiente[k];
+                while (v != -1 && marca[v] != ronda) {
+                    marca[v] = ronda;
+                    camino[v] = k;
+                    v = padre[v];
+                }
+                if (v != -1 && camino[v] == k) {
+                    Ciclo ciclo = extraerCiclo(red, v, padre, ladoPadre);
+                    if (ciclo.getGanancia() > 1 + EPS) {
+                        return ciclo;
                     }
                 }
             }
-            i = j;
-            loop = disc;
+            //Con n rondas sin estabilizar tiene que haber un ciclo; el recorrido ya lo habria visto.
+            if (ronda >= n) {
+                break;
+            }
+            int[] aux = frontera;
+            frontera = siguiente;
+            siguiente = aux;
+            tamFrontera = tamSiguiente;
         }
-        return false;
+        return null;
     }
 
-    public static boolean dineroFacil(Graph<String> graph, HashSet<Lado> lados) {
-        HashSet<String> visitados = new HashSet<String>();
-        for (String moneda : graph.getAllVertices()) {
-            if (calculo(1.0, 0, moneda, moneda, graph, lados, visitados)) {
+    /**Un ciclo solo puede estar dentro de una componente fuerte, asi que separamos la red
+     * en componentes, descartamos las de una sola moneda sin lazo y corremos el detector
+     * en cada una en paralelo sobre el ForkJoinPool comun (parallelStream).*/
+    public static List<ResultadoComponente> buscarPorComponente(RedTasas red) {
+        ComponentesFuertes cfc = ComponentesFuertes.de(red);
+        List<List<Integer>> grupos = new ArrayList<>();
+        for (int c = 0; c < cfc.getCantidad(); c++) {
+            grupos.add(new ArrayList<>());
+        }
+        for (int v = 0; v < red.size(); v++) {
+            grupos.get(cfc.getComponente(v)).add(v);
+        }
+        List<List<Integer>> candidatos = new ArrayList<>();
+        for (List<Integer> grupo : grupos) {
+            if (grupo.size() > 1 || tieneLazo(red, grupo.get(0))) {
+                candidatos.add(grupo);
+            }
+        }
+        return candidatos.parallelStream().map(grupo -> {
+            RedTasas sub = red.subred(grupo);
+            List<String> monedas = new ArrayList<>();
+            for (int k = 0; k < sub.size(); k++) {
+                monedas.add(sub.nombre(k));
+            }
+            return new ResultadoComponente(monedas, buscarCiclo(sub));
+        }).collect(Collectors.toList());
+    }
+
+    private static boolean tieneLazo(RedTasas red, int v) {
+        for (int i = red.inicio(v); i < red.fin(v); i++) {
+            if (red.destino(i) == v) {
                 return true;
             }
         }
         return false;
     }
 
-    public static void main(String[] args) {
-        Graph<String> graph = new AdjacencyListGraph<>();
-        HashSet<Lado> lados = new HashSet<Lado>();
-        try {
-            File inputFile = new File("tasas.txt");
-            Scanner scanner = new Scanner(inputFile);
+    //Recorre los predecesores desde v (que esta en el ciclo) hasta volver a el.
+    private static Ciclo extraerCiclo(RedTasas red, int v, int[] padre, int[] ladoPadre) {
+        List<String> monedas = new ArrayList<>();
+        double ganancia = 1.0;
+        int actual = v;
+        do {
+            monedas.add(red.nombre(actual));
+            ganancia = ganancia * red.tasa(ladoPadre[actual]);
+            actual = padre[actual];
+        } while (actual != v);
+        //Los predecesores van hacia atras; invertimos para leer el ciclo en orden de cambio.
+        Collections.reverse(monedas);
+        return new Ciclo(monedas, ganancia);
+    }
+}
 
-            while (scanner.hasNextLine()) {
-                String lines = scanner.nextLine();
-                String[] names = lines.split(" ");
+/**Tabla densa con la mejor tasa posible entre cada par de monedas. Las tasas se guardan
+ * como log(tasa) en un double[] plano de n*n, y calcular() corre Floyd-Warshall en
+ * (max, +) por bloques de BLOQUE x BLOQUE para que cada bloque quepa en la cache.
+ * Si una entrada de la diagonal queda positiva, esa moneda esta en un ciclo ganador.*/
+class MatrizTasas {
+    static final int BLOQUE = 64;
+    private static final double SIN_TASA = Double.NEGATIVE_INFINITY;
 
-                if (names.length == 3) {
-                    String first = names[0];
-                    String second = names[1];
-                    double exchange = Double.parseDouble(names[2]);
-                    Lado go = new Lado(first, second, exchange);
-                    graph.add(first);
-                    graph.add(second);
-                    graph.connect(first, second);
-                    lados.add(go);
-                }
-            }
-            scanner.close();
-        } catch (FileNotFoundException e) {
-            return;
+    private String[] nombres;
+    private Map<String, Integer> ids;
+    private int n;
+    private double[] base;
+    private double[] mejor;
+
+    public MatrizTasas(List<String> monedas) {
+        n = monedas.size();
+        nombres = monedas.toArray(new String[n]);
+        ids = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            ids.put(nombres[i], i);
         }
-        if (dineroFacil(graph, lados)) {
-            System.out.println("DINERO FÁCIL DESDE TU CASA");
+        base = new double[n * n];
+        Arrays.fill(base, SIN_TASA);
+        //Quedarse en la misma moneda es una tasa de 1, o sea log 0.
+        for (int i = 0; i < n; i++) {
+            base[i * n + i] = 0;
+        }
+        mejor = base.clone();
+    }
+
+    public static MatrizTasas de(WeightedGraph<String> graph) {
+        MatrizTasas matriz = new MatrizTasas(graph.getAllVertices());
+        for (String moneda : matriz.nombres) {
+            graph.forEachOutwardEdge(moneda, (to, tasa) -> matriz.actualizar(moneda, to, tasa));
+        }
+        return matriz;
+    }
+
+    //Cambia la tasa directa from-to; se ve reflejada en el siguiente calcular().
+    public boolean actualizar(String from, String to, double tasa) {
+        Integer i = ids.get(from);
+        Integer j = ids.get(to);
+        if (i == null || j == null || !(tasa > 0)) {
+            return false;
+        }
+        double valor = Math.log(tasa);
+        if (i.equals(j)) {
+            valor = Math.max(valor, 0);
+        }
+        base[i * n + j] = valor;
+        return true;
+    }
+
+    /**Floyd-Warshall por bloques. Para cada bloque k de la diagonal: primero se cierra el
+     * bloque (k,k), luego los bloques de su fila y su columna, que solo dependen de el, y
+     * al final el resto, que depende de esa fila y esa columna.*/
+    public void calcular() {
+        System.arraycopy(base, 0, mejor, 0, n * n);
+        for (int kb = 0; kb < n; kb += BLOQUE) {
+            int kFin = Math.min(kb + BLOQUE, n);
+            relajarBloque(kb, kFin, kb, kFin, kb, kFin);
+            for (int jb = 0; jb < n; jb += BLOQUE) {
+                if (jb != kb) {
+                    relajarBloque(kb, kFin, kb, kFin, jb, Math.min(jb + BLOQUE, n));
+                }
+            }
+            for (int ib = 0; ib < n; ib += BLOQUE) {
+                if (ib != kb) {
+                    relajarBloque(kb, kFin, ib, Math.min(ib + BLOQUE, n), kb, kFin);
+                }
+            }
+            //Las filas de bloques restantes no dependen entre si: se reparten entre nucleos.
+            int k0 = kb;
+            IntStream.range(0, (n + BLOQUE - 1) / BLOQUE).parallel().forEach(fila -> {
+                int ib = fila * BLOQUE;
+                if (ib == k0) {
+                    return;
+                }
+                int iFin = Math.min(ib + BLOQUE, n);
+                for (int jb = 0; jb < n; jb += BLOQUE) {
+                    if (jb != k0) {
+                        relajarBloqueLibre(k0, kFin, ib, iFin, jb, Math.min(jb + BLOQUE, n));
+                    }
+                }
+            });
+        }
+    }
+
+    /**mejor[i][j] = max(mejor[i][j], mejor[i][k] + mejor[k][j]) para k, i, j dentro de
+     * los rangos dados, con k por fuera porque la fila o la columna k cambian dentro del
+     * mismo bloque. El ciclo interno recorre dos filas contiguas del arreglo plano sin
+     * saltos, que es la forma que el JIT puede vectorizar.*/
+    private void relajarBloque(int kIni, int kFin, int iIni, int iFin, int jIni, int jFin) {
+        double[] m = mejor;
+        for (int k = kIni; k < kFin; k++) {
+            int filaK = k * n;
+            for (int i = iIni; i < iFin; i++) {
+                int filaI = i * n;
+                double ik = m[filaI + k];
+                if (ik == SIN_TASA) {
+                    continue;
+                }
+                for (int j = jIni; j < jFin; j++) {
+                    double via = ik + m[filaK + j];
+                    double actual = m[filaI + j];
+                    m[filaI + j] = via > actual ? via : actual;
+                }
+            }
+        }
+    }
+
+    /**Misma relajacion para los bloques que no tocan la fila ni la columna k: ahi los
+     * valores de k ya son finales, asi que se puede recorrer por filas (i, k, j) y dejar
+     * la fila i en cache mientras se le suman todas las filas k del bloque.*/
+    private void relajarBloqueLibre(int kIni, int kFin, int iIni, int iFin, int jIni, int jFin) {
+        double[] m = mejor;
+        for (int i = iIni; i < iFin; i++) {
+            int filaI = i * n;
+            for (int k = kIni; k < kFin; k++) {
+                double ik = m[filaI + k];
+                if (ik == SIN_TASA) {
+                    continue;
+                }
+                int filaK = k * n;
+                for (int j = jIni; j < jFin; j++) {
+                    double via = ik + m[filaK + j];
+                    double actual = m[filaI + j];
+                    m[filaI + j] = via > actual ? via : actual;
+                }
+            }
+        }
+    }
+
+    //Mejor tasa acumulada de from a to segun el ultimo calcular(), o 0 si no hay camino.
+    public double mejorTasa(String from, String to) {
+        Integer i = ids.get(from);
+        Integer j = ids.get(to);
+        if (i == null || j == null) {
+            return 0;
+        }
+        return Math.exp(mejor[i * n + j]);
+    }
+
+    //Monedas cuya entrada diagonal es positiva: desde ellas se puede ganar dinero.
+    public List<String> monedasConArbitraje() {
+        List<String> monedas = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (mejor[i * n + i] > DetectorArbitraje.EPS) {
+                monedas.add(nombres[i]);
+            }
+        }
+        return monedas;
+    }
+}
+
+/**Camino de conversion: las monedas desde el origen hasta el destino y el producto de
+ * las tasas usadas.*/
+class Ruta {
+    private List<String> monedas;
+    private double producto;
+
+    public Ruta(List<String> monedas, double producto) {
+        this.monedas = monedas;
+        this.producto = producto;
+    }
+
+    public List<String> getMonedas() {
+        return monedas;
+    }
+
+    public double getProducto() {
+        return producto;
+    }
+
+    public String toString() {
+        return String.join(" -> ", monedas) + " (x" + producto + ")";
+    }
+}
+
+/**Consultas de la mejor ruta entre dos monedas con a lo sumo maxSaltos cambios. Para un
+ * origen se llena por capas la tabla mejor[h][v] (mejor suma de log(tasa) llegando a v
+ * con h cambios o menos) y el lado usado en cada capa; con eso se responden todos los
+ * destinos del mismo origen. Las tablas quedan en una cache por (origen, maxSaltos)
+ * hasta que cambien las tasas, y las capas de trabajo se reutilizan entre consultas.
+ * Si hay arbitraje la mejor ruta puede dar vueltas a un ciclo, hasta maxSaltos.*/
+class ConsultaRutas {
+    private static final double SIN_RUTA = Double.NEGATIVE_INFINITY;
+
+    /**Tabla de un origen: mejorFinal[v] es la mejor suma con maxSaltos cambios y
+     * lado[h*n+v] el lado con que se llego a v en la capa h, o -1 si se repitio la
+     * capa anterior.*/
+    private static class Tabla {
+        private double[] mejorFinal;
+        private int[] lado;
+    }
+
+    private RedTasas red;
+    private Map<Long, Tabla> cache;
+    private double[] anterior = new double[0];
+    private double[] actual = new double[0];
+
+    public ConsultaRutas(WeightedGraph<String> graph, int capacidadCache) {
+        this.cache = new LinkedHashMap<Long, Tabla>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, Tabla> mayor) {
+                return size() > capacidadCache;
+            }
+        };
+        tasasCambiaron(graph);
+    }
+
+    //Hay que llamarlo cuando cambian las tasas: se toma otra copia y se vacia la cache.
+    public synchronized void tasasCambiaron(WeightedGraph<String> graph) {
+        red = RedTasas.de(graph);
+        cache.clear();
+        if (anterior.length != red.size()) {
+            anterior = new double[red.size()];
+            actual = new double[red.size()];
+        }
+    }
+
+    //Devuelve la mejor ruta de origen a destino con a lo sumo maxSaltos, o null si no hay.
+    public synchronized Ruta mejorRuta(String origen, String destino, int maxSaltos) {
+        int s = red.id(origen);
+        int t = red.id(destino);
+        if (s < 0 || t < 0 || maxSaltos < 0) {
+            return null;
+        }
+        long clave = ((long) s << 32) | maxSaltos;
+        Tabla tabla = cache.get(clave);
+        if (tabla == null) {
+            tabla = llenar(s, maxSaltos);
+            cache.put(clave, tabla);
+        }
+        if (tabla.mejorFinal[t] == SIN_RUTA) {
+            return null;
+        }
+        //Reconstruimos desde la ultima capa hacia atras.
+        int n = red.size();
+        List<String> monedas = new ArrayList<>();
+        double producto = 1.0;
+        int v = t;
+        for (int h = maxSaltos; h > 0; h--) {
+            int i = tabla.lado[h * n + v];
+            if (i != -1) {
+                monedas.add(red.nombre(v));
+                producto = producto * red.tasa(i);
+                v = red.origen(i);
+            }
+        }
+        monedas.add(red.nombre(v));
+        Collections.reverse(monedas);
+        return new Ruta(monedas, producto);
+    }
+
+    //Programacion dinamica por capas: la capa h solo mira la capa h-1.
+    private Tabla llenar(int s, int maxSaltos) {
+        int n = red.size();
+        Tabla tabla = new Tabla();
+        tabla.lado = new int[(maxSaltos + 1) * n];
+        Arrays.fill(anterior, SIN_RUTA);
+        anterior[s] = 0;
+        for (int h = 1; h <= maxSaltos; h++) {
+            int capa = h * n;
+            System.arraycopy(anterior, 0, actual, 0, n);
+            Arrays.fill(tabla.lado, capa, capa + n, -1);
+            for (int u = 0; u < n; u++) {
+                double base = anterior[u];
+                if (base == SIN_RUTA) {
+                    continue;
+                }
+                for (int i = red.inicio(u); i < red.fin(u); i++) {
+                    int v = red.destino(i);
+                    double via = base - red.peso(i);
+                    if (via > actual[v]) {
+                        actual[v] = via;
+                        tabla.lado[capa + v] = i;
+                    }
+                }
+            }
+            double[] aux = anterior;
+            anterior = actual;
+            actual = aux;
+        }
+        tabla.mejorFinal = anterior.clone();
+        return tabla;
+    }
+}
+
+/**Enumera los k ciclos ganadores mas rentables de largo a lo sumo L. Cada ciclo se busca
+ * solo desde su moneda de menor id y pasando por monedas de id mayor, asi que cada ciclo
+ * aparece una sola vez sin importar por donde se empiece a leer. Desde cada inicio se
+ * hace una busqueda primero-el-mejor ordenada por una cota superior de la ganancia:
+ * lo ya ganado + la mejor tasa de salida de la moneda actual + la mejor tasa de la red
+ * por cada cambio intermedio + la mejor tasa de entrada al inicio. Las ramas cuya cota
+ * no supera al k-esimo mejor ciclo encontrado se descartan, y solo se guardan k ciclos
+ * en un monticulo acotado.*/
+class EnumeradorCiclos {
+
+    //Camino parcial: ultimo lado usado, ganancia en log, largo y cota; padre es el camino previo.
+    private static class Parcial {
+        private Parcial padre;
+        private int moneda;
+        private int lado;
+        private int largo;
+        private double ganancia;
+        private double cota;
+
+        private Parcial(Parcial padre, int moneda, int lado, int largo, double ganancia, double cota) {
+            this.padre = padre;
+            this.moneda = moneda;
+            this.lado = lado;
+            this.largo = largo;
+            this.ganancia = ganancia;
+            this.cota = cota;
+        }
+
+        private boolean pasaPor(int v) {
+            for (Parcial p = this; p != null; p = p.padre) {
+                if (p.moneda == v) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    //Ciclo cerrado con su ganancia en log, para el monticulo de los k mejores.
+    private static class Cerrado {
+        private Parcial camino;
+        private int ladoFinal;
+        private double ganancia;
+
+        private Cerrado(Parcial camino, int ladoFinal, double ganancia) {
+            this.camino = camino;
+            this.ladoFinal = ladoFinal;
+            this.ganancia = ganancia;
+        }
+    }
+
+    public static List<Ciclo> mejores(RedTasas red, int k, int largoMaximo) {
+        int n = red.size();
+        List<Ciclo> resultado = new ArrayList<>();
+        if (k <= 0 || largoMaximo <= 0) {
+            return resultado;
+        }
+        //log de la mejor tasa que sale de cada moneda y la mejor de toda la red.
+        double[] mejorSalida = new double[n];
+        Arrays.fill(mejorSalida, Double.NEGATIVE_INFINITY);
+        double intermedio = 0;
+        for (int u = 0; u < n; u++) {
+            for (int i = red.inicio(u); i < red.fin(u); i++) {
+                mejorSalida[u] = Math.max(mejorSalida[u], -red.peso(i));
+            }
+            intermedio = Math.max(intermedio, mejorSalida[u]);
+        }
+        //Los k mejores ciclos hasta ahora, con el peor arriba para poder sacarlo.
+        PriorityQueue<Cerrado> mejores = new PriorityQueue<>((a, b) -> Double.compare(a.ganancia, b.ganancia));
+        double[] haciaInicio = new double[n];
+        PriorityQueue<Parcial> frontera = new PriorityQueue<>((a, b) -> Double.compare(b.cota, a.cota));
+        for (int s = 0; s < n; s++) {
+            //Mejor tasa directa de cada moneda hacia el inicio s (y la mejor de todas).
+            Arrays.fill(haciaInicio, Double.NEGATIVE_INFINITY);
+            double entrada = Double.NEGATIVE_INFINITY;
+            for (int u = s; u < n; u++) {
+                for (int i = red.inicio(u); i < red.fin(u); i++) {
+                    if (red.destino(i) == s) {
+                        haciaInicio[u] = Math.max(haciaInicio[u], -red.peso(i));
+                        entrada = Math.max(entrada, haciaInicio[u]);
+                    }
+                }
+            }
+            if (entrada == Double.NEGATIVE_INFINITY) {
+                continue;
+            }
+            frontera.clear();
+            frontera.add(new Parcial(null, s, -1, 0, 0, cota(0, s, largoMaximo, haciaInicio, mejorSalida, intermedio, entrada)));
+            while (!frontera.isEmpty()) {
+                Parcial p = frontera.poll();
+                double umbral = umbral(mejores, k);
+                if (p.cota <= umbral) {
+                    break;
+                }
+                for (int i = red.inicio(p.moneda); i < red.fin(p.moneda); i++) {
+                    int x = red.destino(i);
+                    double ganancia = p.ganancia - red.peso(i);
+                    if (x == s) {
+                        if (ganancia > umbral(mejores, k)) {
+                            mejores.add(new Cerrado(p, i, ganancia));
+                            if (mejores.size() > k) {
+                                mejores.poll();
+                            }
+                        }
+                    } else if (x > s && p.largo + 1 < largoMaximo && !p.pasaPor(x)) {
+                        int largo = p.largo + 1;
+                        double c = cota(ganancia, x, largoMaximo - largo, haciaInicio, mejorSalida, intermedio, entrada);
+                        if (c > umbral(mejores, k)) {
+                            frontera.add(new Parcial(p, x, i, largo, ganancia, c));
+                        }
+                    }
+                }
+            }
+        }
+        while (!mejores.isEmpty()) {
+            resultado.add(armar(red, mejores.poll()));
+        }
+        Collections.reverse(resultado);
+        return resultado;
+    }
+
+    /**Cota de la ganancia final desde la moneda c con "restantes" lados disponibles: o se
+     * cierra directo, o sale por su mejor lado, hace cambios intermedios y entra al inicio.*/
+    private static double cota(double ganancia, int c, int restantes, double[] haciaInicio, double[] mejorSalida,
+            double intermedio, double entrada) {
+        double mejor = haciaInicio[c];
+        if (restantes >= 2) {
+            mejor = Math.max(mejor, mejorSalida[c] + (restantes - 2) * intermedio + entrada);
+        }
+        return ganancia + mejor;
+    }
+
+    //Un ciclo nuevo tiene que ganar (log > 0) y superar al peor de los k que ya tenemos.
+    private static double umbral(PriorityQueue<Cerrado> mejores, int k) {
+        if (mejores.size() < k) {
+            return DetectorArbitraje.EPS;
+        }
+        return mejores.peek().ganancia;
+    }
+
+    private static Ciclo armar(RedTasas red, Cerrado cerrado) {
+        List<String> monedas = new ArrayList<>();
+        double producto = red.tasa(cerrado.ladoFinal);
+        for (Parcial p = cerrado.camino; p != null; p = p.padre) {
+            monedas.add(red.nombre(p.moneda));
+            if (p.lado != -1) {
+                producto = producto * red.tasa(p.lado);
+            }
+        }
+        Collections.reverse(monedas);
+        return new Ciclo(monedas, producto);
+    }
+}
+
+/**Recibe los avisos del monitor cuando un ciclo ganador aparece o desaparece.*/
+interface EscuchaArbitraje {
+    void aparece(Ciclo ciclo);
+    void desaparece(Ciclo ciclo);
+}
+
+/**Monitor de arbitraje para un flujo de tasas. En lugar de repetir Bellman-Ford con
+ * cada cambio, guarda un potencial por moneda que cumple pot[v] <= pot[u] - log(tasa)
+ * en todos los lados libres; mientras eso se cumpla no puede haber ciclos ganadores
+ * entre ellos. Los lados de un ciclo activo quedan reservados y no cuentan para los
+ * potenciales, asi un ciclo vivo no impide ver a los demas.
+ * - Si una tasa libre baja, la condicion se sigue cumpliendo y no hay nada que hacer.
+ * - Si una tasa libre sube y rompe la condicion en u-v, se reparan los potenciales desde
+ *   v (solo las monedas cuyo potencial baja). Si la reparacion vuelve a u, el lado u-v
+ *   cierra un ciclo ganador: se avisa que aparecio, se reservan sus lados y se vuelven
+ *   a poner los potenciales de antes, que siguen valiendo sin esos lados.
+ * - Si cambia un lado reservado se actualiza la ganancia de los ciclos que lo usan; los
+ *   que dejan de ganar desaparecen (con su ganancia actual) y sus lados se liberan de a
+ *   uno, revisando cada uno como si acabara de cambiar.
+ * - Los potenciales no ven ciclos que pasan por lados reservados, asi que mientras haya
+ *   ciclos activos cada tasa que sube se revisa tambien con buscarSolapados, que busca
+ *   los ciclos ganadores de a lo sumo largoMaximo lados que cierra ese lado aunque
+ *   compartan lados con otros. El largo acota el trabajo por tick: cerca de la paridad
+ *   la cantidad de ciclos largos que ganan crece exponencialmente.*/
+class MonitorArbitraje {
+    private WeightedGraph<String> graph = new WeightedAdjacencyListGraph<>();
+    private Map<String, Integer> ids = new HashMap<>();
+    private List<String> nombres = new ArrayList<>();
+    private double[] potencial = new double[16];
+    private int[] padre = new int[16];
+    private boolean[] enCola = new boolean[16];
+    private int[] cola = new int[16];
+    //Ciclos activos por su forma normalizada y cuantos de ellos usan cada lado u-v.
+    private Map<String, Ciclo> activos = new LinkedHashMap<>();
+    private Map<Long, Integer> reservados = new HashMap<>();
+    private EscuchaArbitraje escucha;
+
+    //Potenciales que cambio la reparacion en curso, para poder deshacerla.
+    private double[] guardado = new double[16];
+    private boolean[] tocado = new boolean[16];
+    private List<Integer> tocados = new ArrayList<>();
+
+    //Estado de buscarSolapados: el camino u, v, ... y la cota de lo que falta hasta u.
+    private static final int LARGO_SOLAPADOS = 4;
+    private static final int PRESUPUESTO = 1 << 16;
+    private int largoMaximo;
+    private int largo;
+    private int destino;
+    private int restantes;
+    private boolean[] enCamino;
+    private List<Integer> camino = new ArrayList<>();
+    private double[][] cota;
+
+    //Estado de la reparacion en curso, usado por el consumidor de lados.
+    private int actual;
+    private int origenReparacion;
+    private int cierre;
+    private int finCola;
+    private int tamCola;
+    private WeightedEdgeConsumer<String> relajar;
+
+    public MonitorArbitraje(EscuchaArbitraje escucha) {
+        this(escucha, LARGO_SOLAPADOS);
+    }
+
+    public MonitorArbitraje(EscuchaArbitraje escucha, int largoMaximo) {
+        this.escucha = escucha;
+        this.largoMaximo = largoMaximo;
+        this.relajar = (to, tasa) -> {
+            if (cierre != -1 || tasa <= 0) {
+                return;
+            }
+            int y = ids.get(to);
+            if (!reservados.isEmpty() && reservados.containsKey(lado(actual, y))) {
+                return;
+            }
+            double nuevo = potencial[actual] - Math.log(tasa);
+            if (nuevo < potencial[y] - DetectorArbitraje.EPS) {
+                if (y == origenReparacion) {
+                    cierre = actual;
+                    return;
+                }
+                bajar(y, nuevo);
+                padre[y] = actual;
+                if (!enCola[y]) {
+                    enCola[y] = true;
+                    cola[finCola] = y;
+                    finCola = (finCola + 1) % cola.length;
+                    tamCola++;
+                }
+            }
+        };
+    }
+
+    //Ciclos ganadores activos, en el orden en que aparecieron.
+    public Collection<Ciclo> getCiclosActivos() {
+        return Collections.unmodifiableCollection(activos.values());
+    }
+
+    //Carga de una vez todas las tasas de un grafo y revisa cada lado.
+    public void cargar(WeightedGraph<String> tasas) {
+        for (String moneda : tasas.getAllVertices()) {
+            agregarMoneda(moneda);
+        }
+        for (String moneda : tasas.getAllVertices()) {
+            tasas.forEachOutwardEdge(moneda, (to, tasa) -> fijarTasa(moneda, to, tasa));
+        }
+        for (String moneda : tasas.getAllVertices()) {
+            for (String to : tasas.getOutwardEdges(moneda)) {
+                revisar(ids.get(moneda), ids.get(to));
+            }
+        }
+        if (!activos.isEmpty()) {
+            for (String moneda : tasas.getAllVertices()) {
+                for (String to : tasas.getOutwardEdges(moneda)) {
+                    buscarSolapados(ids.get(moneda), ids.get(to));
+                }
+            }
+        }
+    }
+
+    //Metodo Actualizar: procesa un cambio de tasa from-to.
+    public void actualizar(String from, String to, double tasa) {
+        if (!(tasa > 0) || Double.isInfinite(tasa)) {
+            return;
+        }
+        int u = agregarMoneda(from);
+        int v = agregarMoneda(to);
+        //getWeight da NaN si el lado es nuevo, y un lado nuevo cuenta como una tasa que sube.
+        double antes = graph.getWeight(from, to);
+        fijarTasa(from, to, tasa);
+        if (reservados.containsKey(lado(u, v))) {
+            //El lado es de ciclos activos: se actualiza su ganancia y se apagan los que pierden.
+            List<Ciclo> apagados = new ArrayList<>();
+            for (Map.Entry<String, Ciclo> entrada : activos.entrySet()) {
+                List<String> monedas = entrada.getValue().getMonedas();
+                if (usaLado(entrada.getValue(), from, to)) {
+                    Ciclo vigente = new Ciclo(monedas, ganancia(monedas));
+                    if (vigente.getGanancia() <= 1 + DetectorArbitraje.EPS) {
+                        apagados.add(vigente);
+                    } else {
+                        entrada.setValue(vigente);
+                    }
+                }
+            }
+            for (Ciclo ciclo : apagados) {
+                activos.remove(clave(ciclo.getMonedas()));
+                escucha.desaparece(ciclo);
+                liberar(ciclo.getMonedas());
+            }
+        }
+        revisar(u, v);
+        if (!(tasa <= antes) && !activos.isEmpty()) {
+            buscarSolapados(u, v);
+        }
+    }
+
+    private int agregarMoneda(String moneda) {
+        Integer id = ids.get(moneda);
+        if (id != null) {
+            return id;
+        }
+        int v = nombres.size();
+        if (v == potencial.length) {
+            potencial = Arrays.copyOf(potencial, v * 2);
+            padre = Arrays.copyOf(padre, v * 2);
+            enCola = Arrays.copyOf(enCola, v * 2);
+            guardado = Arrays.copyOf(guardado, v * 2);
+            tocado = Arrays.copyOf(tocado, v * 2);
+            cola = new int[v * 2];
+        }
+        ids.put(moneda, v);
+        nombres.add(moneda);
+        graph.add(moneda);
+        //Una moneda sin lados cumple cualquier condicion, asi que parte de 0.
+        potencial[v] = 0;
+        return v;
+    }
+
+    private void fijarTasa(String from, String to, double tasa) {
+        if (!graph.connect(from, to, tasa)) {
+            graph.setWeight(from, to, tasa);
+        }
+    }
+
+    private static long lado(int u, int v) {
+        return ((long) u << 32) | (v & 0xffffffffL);
+    }
+
+    //Baja el potencial de x recordando el valor anterior la primera vez.
+    private void bajar(int x, double nuevo) {
+        if (!tocado[x]) {
+            tocado[x] = true;
+            guardado[x] = potencial[x];
+            tocados.add(x);
+        }
+        potencial[x] = nuevo;
+    }
+
+    //Si el lado libre u-v rompe la condicion de los potenciales, los repara.
+    private void revisar(int u, int v) {
+        if (reservados.containsKey(lado(u, v))) {
+            return;
+        }
+        double tasa = graph.getWeight(nombres.get(u), nombres.get(v));
+        if (tasa > 0 && potencial[u] - Math.log(tasa) < potencial[v] - DetectorArbitraje.EPS) {
+            reparar(u, v, tasa);
+        }
+    }
+
+    /**Propaga desde v la mejora que produjo el lado u-v con una cola (SPFA). Solo entran
+     * a la cola las monedas cuyo potencial baja, que es la parte afectada del grafo.*/
+    private void reparar(int u, int v, double tasa) {
+        origenReparacion = u;
+        cierre = -1;
+        tamCola = 0;
+        finCola = 0;
+        int inicioCola = 0;
+        if (v == u) {
+            //Un lazo que rompe la condicion es un ciclo de una sola moneda.
+            cierre = u;
+        } else {
+            bajar(v, potencial[u] - Math.log(tasa));
+            padre[v] = u;
+            enCola[v] = true;
+            cola[finCola++] = v;
+            tamCola++;
+        }
+        while (tamCola > 0 && cierre == -1) {
+            actual = cola[inicioCola];
+            inicioCola = (inicioCola + 1) % cola.length;
+            tamCola--;
+            enCola[actual] = false;
+            graph.forEachOutwardEdge(nombres.get(actual), relajar);
+        }
+        //Dejamos la cola limpia para la siguiente reparacion.
+        while (tamCola > 0) {
+            enCola[cola[inicioCola]] = false;
+            inicioCola = (inicioCola + 1) % cola.length;
+            tamCola--;
+        }
+        List<String> monedas = null;
+        if (cierre != -1) {
+            //El ciclo es u -> v -> ... -> cierre -> u, siguiendo los padres desde cierre.
+            monedas = new ArrayList<>();
+            for (int x = cierre; x != u; x = padre[x]) {
+                monedas.add(nombres.get(x));
+            }
+            monedas.add(nombres.get(u));
+            Collections.reverse(monedas);
+        }
+        for (int x : tocados) {
+            //Con un ciclo nuevo la reparacion quedo a medias: volvemos a los potenciales
+            //de antes, que cumplen la condicion en todos los lados que quedan libres.
+            if (monedas != null) {
+                potencial[x] = guardado[x];
+            }
+            tocado[x] = false;
+        }
+        tocados.clear();
+        if (monedas != null) {
+            Ciclo ciclo = new Ciclo(monedas, ganancia(monedas));
+            activos.put(clave(monedas), ciclo);
+            reservar(monedas);
+            escucha.aparece(ciclo);
+        }
+    }
+
+    /**Busca los ciclos ganadores de a lo sumo largoMaximo lados que pasan por el lado
+     * u-v, tambien los que usan lados reservados, y avisa los que no estaban activos. Es
+     * una busqueda en profundidad de caminos simples v -> ... -> u; una rama se corta si
+     * ni el mejor recorrido hasta u con los lados que le quedan (cota[r][x], calculada por
+     * capas hacia atras) alcanza para ganar. Si aun asi hay muchisimos ciclos, la busqueda
+     * se detiene tras PRESUPUESTO pasos y los que falten se avisan cuando vuelva a subir
+     * uno de sus lados.*/
+    private void buscarSolapados(int u, int v) {
+        int n = nombres.size();
+        largo = Math.min(largoMaximo, n);
+        if (u == v || largo < 2) {
+            return;
+        }
+        //cota[r][x]: mejor log-ganancia de un recorrido de a lo sumo r lados de x a u.
+        cota = new double[largo][];
+        cota[0] = new double[n];
+        Arrays.fill(cota[0], Double.NEGATIVE_INFINITY);
+        cota[0][u] = 0;
+        for (int r = 1; r < largo; r++) {
+            cota[r] = cota[r - 1].clone();
+            for (int x = 0; x < n; x++) {
+                String desde = nombres.get(x);
+                for (String hasta : graph.getOutwardEdges(desde)) {
+                    double siguiente = cota[r - 1][ids.get(hasta)];
+                    if (siguiente != Double.NEGATIVE_INFINITY) {
+                        cota[r][x] = Math.max(cota[r][x], Math.log(graph.getWeight(desde, hasta)) + siguiente);
+                    }
+                }
+            }
+        }
+        destino = u;
+        restantes = PRESUPUESTO;
+        enCamino = new boolean[n];
+        camino.clear();
+        camino.add(u);
+        camino.add(v);
+        enCamino[u] = true;
+        enCamino[v] = true;
+        extender(v, Math.log(graph.getWeight(nombres.get(u), nombres.get(v))));
+    }
+
+    //Sigue el camino que termina en x, con "ganancia" acumulada desde el lado u-v.
+    private void extender(int x, double ganancia) {
+        if (--restantes < 0) {
+            return;
+        }
+        String desde = nombres.get(x);
+        for (String hasta : graph.getOutwardEdges(desde)) {
+            int y = ids.get(hasta);
+            double g = ganancia + Math.log(graph.getWeight(desde, hasta));
+            if (y == destino) {
+                if (g > DetectorArbitraje.EPS) {
+                    List<String> monedas = new ArrayList<>();
+                    for (int z : camino) {
+                        monedas.add(nombres.get(z));
+                    }
+                    avisarSiGana(monedas);
+                }
+            } else if (!enCamino[y] && camino.size() < largo && g + cota[largo - camino.size()][y] > DetectorArbitraje.EPS) {
+                enCamino[y] = true;
+                camino.add(y);
+                extender(y, g);
+                camino.remove(camino.size() - 1);
+                enCamino[y] = false;
+            }
+        }
+    }
+
+    private void avisarSiGana(List<String> monedas) {
+        double producto = ganancia(monedas);
+        String clave = clave(monedas);
+        if (producto > 1 + DetectorArbitraje.EPS && !activos.containsKey(clave)) {
+            Ciclo ciclo = new Ciclo(monedas, producto);
+            activos.put(clave, ciclo);
+            reservar(monedas);
+            escucha.aparece(ciclo);
+        }
+    }
+
+    //Forma normalizada de un ciclo: la rotacion que empieza en la moneda menor.
+    private static String clave(List<String> monedas) {
+        int inicio = 0;
+        for (int i = 1; i < monedas.size(); i++) {
+            if (monedas.get(i).compareTo(monedas.get(inicio)) < 0) {
+                inicio = i;
+            }
+        }
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < monedas.size(); i++) {
+            texto.append(monedas.get((inicio + i) % monedas.size())).append(' ');
+        }
+        return texto.toString();
+    }
+
+    private void reservar(List<String> monedas) {
+        for (int i = 0; i < monedas.size(); i++) {
+            long uv = lado(ids.get(monedas.get(i)), ids.get(monedas.get((i + 1) % monedas.size())));
+            reservados.merge(uv, 1, Integer::sum);
+        }
+    }
+
+    /**Suelta los lados del ciclo de a uno, revisando cada lado apenas queda libre: la
+     * reparacion supone que el unico lado libre que rompe la condicion es el suyo.*/
+    private void liberar(List<String> monedas) {
+        for (int i = 0; i < monedas.size(); i++) {
+            int u = ids.get(monedas.get(i));
+            int v = ids.get(monedas.get((i + 1) % monedas.size()));
+            if (reservados.merge(lado(u, v), -1, Integer::sum) == 0) {
+                reservados.remove(lado(u, v));
+                revisar(u, v);
+            }
+        }
+    }
+
+    private boolean usaLado(Ciclo ciclo, String from, String to) {
+        List<String> monedas = ciclo.getMonedas();
+        for (int i = 0; i < monedas.size(); i++) {
+            if (monedas.get(i).equals(from) && monedas.get((i + 1) % monedas.size()).equals(to)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double ganancia(List<String> monedas) {
+        double producto = 1.0;
+        for (int i = 0; i < monedas.size(); i++) {
+            producto = producto * graph.getWeight(monedas.get(i), monedas.get((i + 1) % monedas.size()));
+        }
+        return producto;
+    }
+}
+
+/**Recibe cada linea valida de una lista de arcos: los ids de sus dos vertices y, si la
+ * linea tiene un tercer campo, su valor numerico (si no, 0).*/
+interface ConsumidorArista {
+    void aceptar(int from, int to, double valor);
+}
+
+/**Tabla de nombres de vertices: a cada nombre distinto le da un id denso 0..n-1. Los
+ * bytes de los nombres se guardan seguidos en un solo arreglo y la tabla es de
+ * direccionamiento abierto, asi buscar un nombre es calcular un hash y probar unas
+ * pocas casillas, sin crear un String hasta que alguien pide el nombre.*/
+class TablaNombres {
+    private int[] tabla = new int[1 << 10];
+    private int[] hashes = new int[256];
+    private int[] inicios = new int[257];
+    private byte[] bytes = new byte[1 << 12];
+    private String[] nombres = new String[256];
+    private int cantidad = 0;
+
+    public int size() {
+        return cantidad;
+    }
+
+    public String nombre(int id) {
+        if (nombres[id] == null) {
+            nombres[id] = new String(bytes, inicios[id], inicios[id + 1] - inicios[id], StandardCharsets.UTF_8);
+        }
+        return nombres[id];
+    }
+
+    //Id del nombre que ocupa datos[desde..hasta), creandolo si es nuevo.
+    public int id(ByteBuffer datos, int desde, int hasta) {
+        int h = 0;
+        for (int i = desde; i < hasta; i++) {
+            h = 31 * h + datos.get(i);
+        }
+        int mascara = tabla.length - 1;
+        int casilla = (h ^ (h >>> 16)) & mascara;
+        while (tabla[casilla] != 0) {
+            int id = tabla[casilla] - 1;
+            if (hashes[id] == h && iguales(id, datos, desde, hasta)) {
+                return id;
+            }
+            casilla = (casilla + 1) & mascara;
+        }
+        int id = cantidad;
+        int largo = hasta - desde;
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+            inicios = Arrays.copyOf(inicios, id * 2 + 1);
+            nombres = Arrays.copyOf(nombres, id * 2);
+        }
+        while (inicios[id] + largo > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        for (int i = 0; i < largo; i++) {
+            bytes[inicios[id] + i] = datos.get(desde + i);
+        }
+        inicios[id + 1] = inicios[id] + largo;
+        hashes[id] = h;
+        cantidad++;
+        tabla[casilla] = id + 1;
+        if (cantidad * 2 > tabla.length) {
+            agrandar();
+        }
+        return id;
+    }
+
+    private boolean iguales(int id, ByteBuffer datos, int desde, int hasta) {
+        if (inicios[id + 1] - inicios[id] != hasta - desde) {
+            return false;
+        }
+        for (int i = 0; i < hasta - desde; i++) {
+            if (bytes[inicios[id] + i] != datos.get(desde + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Duplica la tabla y vuelve a ubicar cada id con el hash que ya tenia guardado.
+    private void agrandar() {
+        tabla = new int[tabla.length * 2];
+        int mascara = tabla.length - 1;
+        for (int id = 0; id < cantidad; id++) {
+            int casilla = (hashes[id] ^ (hashes[id] >>> 16)) & mascara;
+            while (tabla[casilla] != 0) {
+                casilla = (casilla + 1) & mascara;
+            }
+            tabla[casilla] = id + 1;
+        }
+    }
+}
+
+/**Lector de listas de arcos "a<sep>b" o "a<sep>b<sep>numero". El archivo se mapea en
+ * memoria con FileChannel.map, en ventanas que terminan en un fin de linea, y se recorre
+ * byte a byte buscando el separador y los fines de linea, sin Scanner ni String.split.
+ * Las lineas se aceptan con la misma regla que split: se quitan los campos vacios del
+ * final y tienen que quedar exactamente los campos pedidos. Los nombres pasan por una
+ * TablaNombres y el numero se lee directo de los bytes cuando es un decimal simple.*/
+class CargadorAristas {
+    private static final long VENTANA = 1L << 30;
+    //Potencias de 10 exactas en double, para leer decimales sin redondeos de mas.
+    private static final double[] POTENCIAS = new double[23];
+
+    static {
+        POTENCIAS[0] = 1;
+        for (int i = 1; i < POTENCIAS.length; i++) {
+            POTENCIAS[i] = POTENCIAS[i - 1] * 10;
+        }
+    }
+
+    private final byte[] separador;
+    private final int campos;
+    private final TablaNombres nombres = new TablaNombres();
+    private int[] inicioCampo = new int[4];
+    private int[] finCampo = new int[4];
+
+    public CargadorAristas(String separador, int campos) {
+        this.separador = separador.getBytes(StandardCharsets.UTF_8);
+        this.campos = campos;
+    }
+
+    public TablaNombres getNombres() {
+        return nombres;
+    }
+
+    public void cargar(File archivo, ConsumidorArista consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long inicio = 0;
+            while (inicio < tamano) {
+                MappedByteBuffer datos = ventana(canal, inicio, tamano);
+                procesar(datos, 0, datos.limit(), consumidor);
+                inicio += datos.limit();
+            }
+        }
+    }
+
+    /**Mapea la ventana del archivo que empieza en inicio. Si no es la ultima, su limit()
+     * queda justo despues del ultimo fin de linea, para no partir una linea en dos.*/
+    static MappedByteBuffer ventana(FileChannel canal, long inicio, long tamano) throws IOException {
+        int largo = (int) Math.min(VENTANA, tamano - inicio);
+        MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, inicio, largo);
+        if (inicio + largo < tamano) {
+            int fin = finDeLinea(datos, 0, largo);
+            datos.limit(fin == 0 ? largo : fin);
+        }
+        return datos;
+    }
+
+    //Posicion justo despues del ultimo fin de linea de datos[desde..hasta), o desde si no hay.
+    static int finDeLinea(ByteBuffer datos, int desde, int hasta) {
+        int fin = hasta;
+        while (fin > desde && datos.get(fin - 1) != '\n' && datos.get(fin - 1) != '\r') {
+            fin--;
+        }
+        return fin;
+    }
+
+    //Recorre las lineas de datos[desde..hasta); \n, \r y \r\n terminan una linea.
+    public void procesar(ByteBuffer datos, int desde, int hasta, ConsumidorArista consumidor) {
+        int linea = desde;
+        while (linea < hasta) {
+            int fin = linea;
+            while (fin < hasta && datos.get(fin) != '\n' && datos.get(fin) != '\r') {
+                fin++;
+            }
+            procesarLinea(datos, linea, fin, consumidor);
+            linea = fin + 1;
+        }
+    }
+
+    private void procesarLinea(ByteBuffer datos, int desde, int hasta, ConsumidorArista consumidor) {
+        int cantidad = 0;
+        int campo = desde;
+        for (int i = desde; i + separador.length <= hasta; ) {
+            if (esSeparador(datos, i)) {
+                cantidad = anotar(cantidad, campo, i);
+                i += separador.length;
+                campo = i;
+            } else {
+                i++;
+            }
+        }
+        cantidad = anotar(cantidad, campo, hasta);
+        while (cantidad > 0 && inicioCampo[cantidad - 1] == finCampo[cantidad - 1]) {
+            cantidad--;
+        }
+        if (cantidad != campos) {
+            return;
+        }
+        int from = nombres.id(datos, inicioCampo[0], finCampo[0]);
+        int to = nombres.id(datos, inicioCampo[1], finCampo[1]);
+        double valor = campos > 2 ? numero(datos, inicioCampo[2], finCampo[2]) : 0;
+        consumidor.aceptar(from, to, valor);
+    }
+
+    private boolean esSeparador(ByteBuffer datos, int i) {
+        for (int k = 0; k < separador.length; k++) {
+            if (datos.get(i + k) != separador[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int anotar(int cantidad, int inicio, int fin) {
+        if (cantidad == inicioCampo.length) {
+            inicioCampo = Arrays.copyOf(inicioCampo, cantidad * 2);
+            finCampo = Arrays.copyOf(finCampo, cantidad * 2);
+        }
+        inicioCampo[cantidad] = inicio;
+        finCampo[cantidad] = fin;
+        return cantidad + 1;
+    }
+
+    /**Lee un decimal [-]digitos[.digitos] directo de los bytes. Si tiene a lo sumo 15
+     * digitos y 22 decimales, mantisa / 10^decimales es exacto y queda redondeado igual
+     * que Double.parseDouble; cualquier otra forma se le pasa a Double.parseDouble.*/
+    private static double numero(ByteBuffer datos, int desde, int hasta) {
+        int i = desde;
+        boolean negativo = i < hasta && datos.get(i) == '-';
+        if (negativo) {
+            i++;
+        }
+        long mantisa = 0;
+        int digitos = 0;
+        int decimales = -1;
+        for (; i < hasta; i++) {
+            byte b = datos.get(i);
+            if (b >= '0' && b <= '9') {
+                mantisa = mantisa * 10 + (b - '0');
+                digitos++;
+                if (decimales >= 0) {
+                    decimales++;
+                }
+            } else if (b == '.' && decimales < 0) {
+                decimales = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == hasta && digitos > 0 && digitos <= 15 && decimales < POTENCIAS.length) {
+            double valor = decimales > 0 ? mantisa / POTENCIAS[decimales] : mantisa;
+            return negativo ? -valor : valor;
+        }
+        byte[] texto = new byte[hasta - desde];
+        for (int k = 0; k < texto.length; k++) {
+            texto[k] = datos.get(desde + k);
+        }
+        return Double.parseDouble(new String(texto, StandardCharsets.UTF_8));
+    }
+}
+
+/**Instantanea binaria de un grafo de nombres. Se escribe una vez y se abre con
+ * FileChannel.map: el grafo se sirve directo de las paginas mapeadas, sin convertir nada
+ * al abrir, y los procesos que abren el mismo archivo comparten esas paginas en el cache
+ * del sistema. Todo va en little endian y cada seccion empieza alineada a 8 bytes:
+ *   cabecera  MAGICO, VERSION, banderas, n, m, casillas, largo de los nombres, la
+ *             secuencia de la ultima mutacion de bitacora ya incluida (0 si ninguna) y el
+ *             CRC32 del archivo entero, calculado con esos 4 bytes en cero
+ *   inicios   n + 1 ints: donde empieza cada nombre dentro de la seccion de nombres
+ *   tabla     casillas ints: hash abierto de nombre a id + 1, con 0 en las libres
+ *   salida    n + 1 offsets y m destinos
+ *   entrada   n + 1 offsets y m origenes
+ *   pesos     m doubles, solo si esta la bandera CON_PESOS
+ *   nombres   los bytes UTF-8 de todos los nombres, uno detras de otro
+ * Al abrir se revisan la suma y la forma de las secciones, asi que un archivo danado da
+ * IOException en vez de respuestas equivocadas; eso lee el archivo una vez entero.
+ * El hash de un nombre es el de TablaNombres sobre sus bytes UTF-8. Aqui la tasa de cada
+ * arco va en la seccion de pesos, asi que solo se abren instantaneas con CON_PESOS.*/
+class MappedGraph implements WeightedGraph<String> {
+    static final int MAGICO = 0x47524146;
+    static final int VERSION = 2;
+    static final int CON_PESOS = 1;
+    private static final int CABECERA = 64;
+    private static final int SUMA = 40;
+
+    private final int n;
+    private final int m;
+    private final int mascara;
+    private final IntBuffer inicios;
+    private final IntBuffer tabla;
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+    private final DoubleBuffer pesos;
+    private final ByteBuffer nombres;
+
+    private MappedGraph(FileChannel canal, int n, int m, int casillas, int banderas, long largoNombres)
+            throws IOException {
+        this.n = n;
+        this.m = m;
+        this.mascara = casillas - 1;
+        long[] secciones = secciones(n, m, casillas, banderas, largoNombres);
+        inicios = mapear(canal, secciones[0], secciones[1]).asIntBuffer();
+        tabla = mapear(canal, secciones[1], secciones[2]).asIntBuffer();
+        outOffsets = mapear(canal, secciones[2], secciones[3]).asIntBuffer();
+        outTargets = mapear(canal, secciones[3], secciones[4]).asIntBuffer();
+        inOffsets = mapear(canal, secciones[4], secciones[5]).asIntBuffer();
+        inSources = mapear(canal, secciones[5], secciones[6]).asIntBuffer();
+        pesos = mapear(canal, secciones[6], secciones[7]).asDoubleBuffer();
+        nombres = mapear(canal, secciones[7], secciones[8]);
+    }
+
+    /**Posicion de cada seccion en el archivo: inicios, tabla, offsets y destinos de
+     * salida, offsets y origenes de entrada, pesos, nombres y el fin del archivo.*/
+    private static long[] secciones(int n, int m, int casillas, int banderas, long largoNombres) {
+        long[] largos = {4L * (n + 1), 4L * casillas, 4L * (n + 1), 4L * m, 4L * (n + 1), 4L * m,
+                (banderas & CON_PESOS) != 0 ? 8L * m : 0, largoNombres};
+        long[] secciones = new long[largos.length + 1];
+        secciones[0] = CABECERA;
+        for (int i = 0; i < largos.length; i++) {
+            secciones[i + 1] = (secciones[i] + largos[i] + 7) & ~7L;
+        }
+        return secciones;
+    }
+
+    private static ByteBuffer mapear(FileChannel canal, long desde, long hasta) throws IOException {
+        if (hasta - desde > Integer.MAX_VALUE) {
+            throw new IOException("Seccion de " + (hasta - desde) + " bytes, el maximo es 2 GB");
+        }
+        return canal.map(FileChannel.MapMode.READ_ONLY, desde, hasta - desde).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    //Abre una instantanea; si no es de este formato o de esta version lanza IOException.
+    public static MappedGraph abrir(File archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() < CABECERA) {
+                throw new IOException(archivo + " no es una instantanea de grafo");
+            }
+            ByteBuffer cabecera = mapear(canal, 0, CABECERA);
+            if (cabecera.getInt(0) != MAGICO) {
+                throw new IOException(archivo + " no es una instantanea de grafo");
+            }
+            if (cabecera.getInt(4) != VERSION) {
+                throw new IOException(archivo + " es de la version " + cabecera.getInt(4)
+                        + ", se esperaba la " + VERSION);
+            }
+            int banderas = cabecera.getInt(8);
+            if ((banderas & CON_PESOS) == 0) {
+                throw new IOException(archivo + " no tiene pesos");
+            }
+            int n = cabecera.getInt(12);
+            int m = cabecera.getInt(16);
+            int casillas = cabecera.getInt(20);
+            long largoNombres = cabecera.getLong(24);
+            if (n < 0 || m < 0 || casillas <= n || Integer.bitCount(casillas) != 1 || largoNombres < 0
+                    || largoNombres > Integer.MAX_VALUE) {
+                throw new IOException(archivo + " tiene una cabecera invalida");
+            }
+            long fin = secciones(n, m, casillas, banderas, largoNombres)[8];
+            if (canal.size() < fin) {
+                throw new IOException(archivo + " esta incompleto");
+            }
+            if (cabecera.getInt(SUMA) != suma(canal, fin)) {
+                throw new IOException(archivo + " no coincide con su suma de verificacion");
+            }
+            MappedGraph grafo = new MappedGraph(canal, n, m, casillas, banderas, largoNombres);
+            if (!grafo.esValido(largoNombres)) {
+                throw new IOException(archivo + " tiene secciones inconsistentes");
+            }
+            return grafo;
+        }
+    }
+
+    //Offsets que empiezan en 0, no bajan y llegan al total; ids y casillas dentro de rango.
+    private boolean esValido(long largoNombres) {
+        return creciente(inicios, n, largoNombres) && creciente(outOffsets, n, m) && creciente(inOffsets, n, m)
+                && enRango(outTargets, m, n) && enRango(inSources, m, n) && enRango(tabla, mascara + 1, n + 1);
+    }
+
+    private static boolean creciente(IntBuffer offsets, int n, long total) {
+        int anterior = 0;
+        for (int i = 0; i <= n; i++) {
+            if (offsets.get(i) < anterior) {
+                return false;
+            }
+            anterior = offsets.get(i);
+        }
+        return offsets.get(0) == 0 && anterior == total;
+    }
+
+    private static boolean enRango(IntBuffer valores, int cantidad, int limite) {
+        for (int i = 0; i < cantidad; i++) {
+            if (valores.get(i) < 0 || valores.get(i) >= limite) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //CRC32 de los primeros largo bytes del archivo, contando el campo de la suma como ceros.
+    private static int suma(FileChannel canal, long largo) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer cabecera = mapear(canal, 0, CABECERA);
+        crc.update(cabecera.slice(0, SUMA));
+        crc.update(new byte[4]);
+        crc.update(cabecera.slice(SUMA + 4, CABECERA - SUMA - 4));
+        for (long desde = CABECERA; desde < largo; desde += 1 << 30) {
+            crc.update(mapear(canal, desde, Math.min(largo, desde + (1 << 30))));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**Escribe la instantanea de un grafo con pesos. Se escribe en un archivo temporal al
+     * lado y despues se renombra, asi quien ya tenga mapeada la version anterior la sigue
+     * leyendo entera y nadie ve un archivo a medio escribir.*/
+    public static void guardar(WeightedGraph<String> graph, File archivo) throws IOException {
+        List<String> vertices = graph.getAllVertices();
+        int n = vertices.size();
+        String[] nombres = vertices.toArray(new String[n]);
+        Map<String, Integer> ids = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            ids.put(nombres[v], v);
+        }
+        int[] outOffsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int fila = v + 1;
+            graph.forEachOutwardEdge(nombres[v], (to, peso) -> outOffsets[fila]++);
+        }
+        for (int v = 0; v < n; v++) {
+            outOffsets[v + 1] += outOffsets[v];
+        }
+        int m = outOffsets[n];
+        int[] cursor = Arrays.copyOf(outOffsets, n);
+        int[] outTargets = new int[m];
+        double[] pesos = new double[m];
+        for (int v = 0; v < n; v++) {
+            int fila = v;
+            graph.forEachOutwardEdge(nombres[v], (to, peso) -> {
+                int i = cursor[fila]++;
+                outTargets[i] = ids.get(to);
+                pesos[i] = peso;
+            });
+        }
+        //El CSR de entrada es la transpuesta del de salida, por conteo.
+        int[] inOffsets = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            inOffsets[outTargets[i] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] inCursor = Arrays.copyOf(inOffsets, n);
+        int[] inSources = new int[m];
+        for (int v = 0; v < n; v++) {
+            for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                inSources[inCursor[outTargets[i]]++] = v;
+            }
+        }
+        escribir(archivo, nombres, outOffsets, outTargets, inOffsets, inSources, pesos);
+    }
+
+    static void escribir(File archivo, String[] nombres, int[] outOffsets, int[] outTargets, int[] inOffsets,
+            int[] inSources, double[] pesos) throws IOException {
+        int n = nombres.length;
+        int m = outTargets.length;
+        byte[][] bytes = new byte[n][];
+        int[] inicios = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            bytes[v] = nombres[v].getBytes(StandardCharsets.UTF_8);
+            inicios[v + 1] = Math.addExact(inicios[v], bytes[v].length);
+        }
+        int casillas = Integer.highestOneBit(Math.max(1, 2 * n - 1)) << 1;
+        int[] tabla = new int[casillas];
+        for (int v = 0; v < n; v++) {
+            int casilla = casilla(hash(bytes[v]), casillas - 1);
+            while (tabla[casilla] != 0) {
+                casilla = (casilla + 1) & (casillas - 1);
+            }
+            tabla[casilla] = v + 1;
+        }
+        int banderas = pesos != null ? CON_PESOS : 0;
+        long[] secciones = secciones(n, m, casillas, banderas, inicios[n]);
+        File temporal = new File(archivo.getPath() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bufer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            bufer.putInt(MAGICO).putInt(VERSION).putInt(banderas).putInt(n).putInt(m).putInt(casillas)
+                    .putLong(inicios[n]).putLong(0);
+            int[][] enteros = {inicios, tabla, outOffsets, outTargets, inOffsets, inSources};
+            for (int s = 0; s < enteros.length; s++) {
+                rellenar(canal, bufer, secciones[s]);
+                for (int x : enteros[s]) {
+                    if (bufer.remaining() < 4) {
+                        vaciar(canal, bufer);
+                    }
+                    bufer.putInt(x);
+                }
+            }
+            rellenar(canal, bufer, secciones[6]);
+            if (pesos != null) {
+                for (double x : pesos) {
+                    if (bufer.remaining() < 8) {
+                        vaciar(canal, bufer);
+                    }
+                    bufer.putDouble(x);
+                }
+            }
+            rellenar(canal, bufer, secciones[7]);
+            for (byte[] nombre : bytes) {
+                for (int i = 0; i < nombre.length; ) {
+                    if (!bufer.hasRemaining()) {
+                        vaciar(canal, bufer);
+                    }
+                    int largo = Math.min(bufer.remaining(), nombre.length - i);
+                    bufer.put(nombre, i, largo);
+                    i += largo;
+                }
+            }
+            rellenar(canal, bufer, secciones[8]);
+            vaciar(canal, bufer);
+            //La suma se calcula sobre lo ya escrito, con el mismo codigo que la revisa al abrir.
+            ByteBuffer campo = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            campo.putInt(0, suma(canal, secciones[8]));
+            while (campo.hasRemaining()) {
+                canal.write(campo, SUMA + campo.position());
+            }
+            canal.force(true);
+        }
+        Files.move(temporal.toPath(), archivo.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Escribe ceros hasta llegar a la posicion donde empieza la siguiente seccion.
+    private static void rellenar(FileChannel canal, ByteBuffer bufer, long posicion) throws IOException {
+        while (canal.position() + bufer.position() < posicion) {
+            if (!bufer.hasRemaining()) {
+                vaciar(canal, bufer);
+            }
+            bufer.put((byte) 0);
+        }
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer bufer) throws IOException {
+        bufer.flip();
+        while (bufer.hasRemaining()) {
+            canal.write(bufer);
+        }
+        bufer.clear();
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = 0;
+        for (byte b : bytes) {
+            h = 31 * h + b;
+        }
+        return h;
+    }
+
+    private static int casilla(int h, int mascara) {
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    //Metodos de acceso por id, leidos directo de las paginas mapeadas.
+    public int vertexCount() {
+        return n;
+    }
+
+    public int edgeCount() {
+        return m;
+    }
+
+    //Devuelve el id del vertice o -1 si no pertenece al grafo.
+    public int idOf(String vertex) {
+        byte[] bytes = vertex.getBytes(StandardCharsets.UTF_8);
+        int casilla = casilla(hash(bytes), mascara);
+        while (tabla.get(casilla) != 0) {
+            int id = tabla.get(casilla) - 1;
+            if (igual(id, bytes)) {
+                return id;
+            }
+            casilla = (casilla + 1) & mascara;
+        }
+        return -1;
+    }
+
+    private boolean igual(int id, byte[] bytes) {
+        int inicio = inicios.get(id);
+        if (inicios.get(id + 1) - inicio != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (nombres.get(inicio + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String vertexAt(int id) {
+        byte[] bytes = new byte[inicios.get(id + 1) - inicios.get(id)];
+        nombres.get(inicios.get(id), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int outStart(int v) {
+        return outOffsets.get(v);
+    }
+
+    public int outEnd(int v) {
+        return outOffsets.get(v + 1);
+    }
+
+    public int outTarget(int i) {
+        return outTargets.get(i);
+    }
+
+    public int inStart(int v) {
+        return inOffsets.get(v);
+    }
+
+    public int inEnd(int v) {
+        return inOffsets.get(v + 1);
+    }
+
+    public int inSource(int i) {
+        return inSources.get(i);
+    }
+
+    public double weight(int i) {
+        return pesos.get(i);
+    }
+
+    //La instantanea es de solo lectura: las operaciones que la modifican no estan soportadas.
+    public boolean add(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean connect(String from, String to) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean connect(String from, String to, double weight) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean setWeight(String from, String to, double weight) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean disconnect(String from, String to) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean remove(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    //Metodo GetWeight: devuelve el peso del arco o NaN si el arco no existe.
+    public double getWeight(String from, String to) {
+        int v = idOf(from);
+        int w = idOf(to);
+        if (v >= 0 && w >= 0) {
+            for (int i = outStart(v); i < outEnd(v); i++) {
+                if (outTarget(i) == w) {
+                    return weight(i);
+                }
+            }
+        }
+        return Double.NaN;
+    }
+
+    //Metodo ForEachOutwardEdge
+    public void forEachOutwardEdge(String from, WeightedEdgeConsumer<String> consumer) {
+        int v = idOf(from);
+        if (v >= 0) {
+            for (int i = outStart(v); i < outEnd(v); i++) {
+                consumer.accept(vertexAt(outTarget(i)), weight(i));
+            }
+        }
+    }
+
+    //Metodo Contains
+    public boolean contains(String vertex) {
+        return idOf(vertex) >= 0;
+    }
+
+    //Vista de solo lectura sobre una fila; cada get decodifica el nombre de las paginas.
+    private List<String> vista(IntBuffer datos, int inicio, int fin) {
+        return new AbstractList<String>() {
+            public String get(int i) {
+                return vertexAt(datos.get(inicio + i));
+            }
+
+            public int size() {
+                return fin - inicio;
+            }
+        };
+    }
+
+    //Metodo GetInwardEdges
+    public List<String> getInwardEdges(String to) {
+        int v = idOf(to);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(inSources, inStart(v), inEnd(v));
+    }
+
+    //Metodo GetOutwardEdges
+    public List<String> getOutwardEdges(String from) {
+        int v = idOf(from);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(outTargets, outStart(v), outEnd(v));
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<String> getVerticesConnectedTo(String vertex) {
+        if (contains(vertex)) {
+            Set<String> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            return new ArrayList<>(adjacentVertex);
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<String> getAllVertices() {
+        List<String> todos = new ArrayList<>(n);
+        for (int v = 0; v < n; v++) {
+            todos.add(vertexAt(v));
+        }
+        return todos;
+    }
+
+    //Metodo Size
+    public int size() {
+        return n;
+    }
+
+    //Metodo Subgraph: el subgrafo se arma en memoria y conserva los pesos de los arcos.
+    public Graph<String> subgraph(Collection<String> vertices) {
+        WeightedAdjacencyListGraph<String> subgraph = new WeightedAdjacencyListGraph<>();
+        for (String vertex : vertices) {
+            if (contains(vertex)) {
+                subgraph.add(vertex);
+            }
+        }
+        for (String vertex : vertices) {
+            forEachOutwardEdge(vertex, (sucesor, peso) -> {
+                if (subgraph.contains(sucesor)) {
+                    subgraph.connect(vertex, sucesor, peso);
+                }
+            });
+        }
+        return subgraph;
+    }
+}
+
+public class Arbitrage {
+
+    //Busca un ciclo de arbitraje y lo devuelve, o null si no hay ninguno.
+    public static Ciclo cicloGanador(Graph<String> graph, HashSet<Lado> lados) {
+        return DetectorArbitraje.buscarCiclo(RedTasas.de(graph, lados));
+    }
+
+    public static boolean dineroFacil(Graph<String> graph, HashSet<Lado> lados) {
+        return cicloGanador(graph, lados) != null;
+    }
+
+    public static Ciclo cicloGanador(WeightedGraph<String> graph) {
+        return DetectorArbitraje.buscarCiclo(RedTasas.de(graph));
+    }
+
+    public static boolean dineroFacil(WeightedGraph<String> graph) {
+        return cicloGanador(graph) != null;
+    }
+
+    /**Lee un archivo de tasas "from to tasa" y arma el grafo con pesos. El archivo se
+     * recorre con CargadorAristas y los lados se juntan primero en arreglos por id; asi
+     * cada moneda se agrega una vez y cada par se conecta una vez, con su mejor tasa.*/
+    public static WeightedGraph<String> leerTasas(File inputFile) throws IOException {
+        CargadorAristas cargador = new CargadorAristas(" ", 3);
+        int[][] lados = {new int[16], new int[16]};
+        double[][] tasas = {new double[16]};
+        int[] cantidad = {0};
+        cargador.cargar(inputFile, (first, second, exchange) -> {
+            int m = cantidad[0];
+            if (m == lados[0].length) {
+                lados[0] = Arrays.copyOf(lados[0], m * 2);
+                lados[1] = Arrays.copyOf(lados[1], m * 2);
+                tasas[0] = Arrays.copyOf(tasas[0], m * 2);
+            }
+            lados[0][m] = first;
+            lados[1][m] = second;
+            tasas[0][m] = exchange;
+            cantidad[0] = m + 1;
+        });
+        TablaNombres nombres = cargador.getNombres();
+        int n = nombres.size();
+        int m = cantidad[0];
+        //Counting sort de los lados por moneda de origen.
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            offsets[lados[0][e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] cursor = Arrays.copyOf(offsets, n);
+        int[] destinos = new int[m];
+        double[] mejores = new double[m];
+        for (int e = 0; e < m; e++) {
+            int i = cursor[lados[0][e]]++;
+            destinos[i] = lados[1][e];
+            mejores[i] = tasas[0][e];
+        }
+        WeightedGraph<String> graph = new WeightedAdjacencyListGraph<>();
+        for (int v = 0; v < n; v++) {
+            graph.add(nombres.nombre(v));
+        }
+        /**Si el par ya tenia tasa nos quedamos con la mejor, que es la que usaria cualquier
+         * ciclo que pase por ese par. donde[w] es la posicion del par v-w en esta fila.*/
+        int[] donde = new int[n];
+        int[] fila = new int[n];
+        for (int v = 0; v < n; v++) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int w = destinos[i];
+                if (fila[w] == v + 1) {
+                    mejores[donde[w]] = Math.max(mejores[donde[w]], mejores[i]);
+                } else {
+                    fila[w] = v + 1;
+                    donde[w] = i;
+                }
+            }
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                if (donde[destinos[i]] == i) {
+                    graph.connect(nombres.nombre(v), nombres.nombre(destinos[i]), mejores[i]);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**Abre la instantanea binaria de las tasas. La escribe antes si no existe, si el
+     * texto cambio despues de escribirla o si es de otra version del formato.*/
+    public static MappedGraph abrirInstantanea(File texto, File instantanea) throws IOException {
+        if (instantanea.exists() && instantanea.lastModified() >= texto.lastModified()) {
+            try {
+                return MappedGraph.abrir(instantanea);
+            } catch (IOException e) {
+                System.err.println("Se vuelve a escribir " + instantanea + ": " + e.getMessage());
+            }
+        }
+        MappedGraph.guardar(leerTasas(texto), instantanea);
+        return MappedGraph.abrir(instantanea);
+    }
+
+    /**Modo monitor: parte de tasas.txt (si existe) y luego lee cambios "from to tasa"
+     * del archivo o tuberia indicada, o de la entrada estandar si no se indica o es "-".
+     * Imprime una linea cada vez que un ciclo ganador aparece o desaparece. Un tercer
+     * argumento cambia el largo maximo de los ciclos que comparten lados con otro activo.*/
+    public static void monitorear(String[] args) {
+        EscuchaArbitraje escucha = new EscuchaArbitraje() {
+            public void aparece(Ciclo ciclo) {
+                System.out.println("APARECE " + ciclo);
+            }
+
+            public void desaparece(Ciclo ciclo) {
+                System.out.println("DESAPARECE " + ciclo);
+            }
+        };
+        MonitorArbitraje monitor = args.length > 2
+                ? new MonitorArbitraje(escucha, Integer.parseInt(args[2]))
+                : new MonitorArbitraje(escucha);
+        try {
+            File inicial = new File("tasas.txt");
+            if (inicial.exists()) {
+                monitor.cargar(leerTasas(inicial));
+            }
+            BufferedReader reader;
+            if (args.length < 2 || args[1].equals("-")) {
+                reader = new BufferedReader(new InputStreamReader(System.in));
+            } else {
+                reader = new BufferedReader(new FileReader(args[1]));
+            }
+            String lines;
+            while ((lines = reader.readLine()) != null) {
+                String[] names = lines.split(" ");
+                if (names.length == 3) {
+                    try {
+                        monitor.actualizar(names[0], names[1], Double.parseDouble(names[2]));
+                    } catch (NumberFormatException e) {
+                        //Una linea mal formada no debe detener el monitor.
+                    }
+                }
+            }
+            reader.close();
+        } catch (IOException e) {
+            return;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--monitor")) {
+            monitorear(args);
+            return;
+        }
+        //Con --instantanea las tasas se abren mapeadas desde tasas.grafo en lugar de leer el texto.
+        WeightedGraph<String> graph;
+        try {
+            if (args.length > 0 && args[0].equals("--instantanea")) {
+                graph = abrirInstantanea(new File("tasas.txt"), new File("tasas.grafo"));
+            } else {
+                graph = leerTasas(new File("tasas.txt"));
+            }
+        } catch (IOException e) {
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--componentes")) {
+            //Una linea por componente fuerte que puede tener ciclos.
+            for (ResultadoComponente resultado : DetectorArbitraje.buscarPorComponente(RedTasas.de(graph))) {
+                System.out.print(resultado.getMonedas() + ": ");
+                if (resultado.getCiclo() != null) {
+                    System.out.println(resultado.getCiclo());
+                } else {
+                    System.out.println("TODO GUAY DEL PARAGUAY");
+                }
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--matriz")) {
+            MatrizTasas matriz = MatrizTasas.de(graph);
+            matriz.calcular();
+            List<String> monedas = matriz.monedasConArbitraje();
+            if (!monedas.isEmpty()) {
+                System.out.println("DINERO FÁCIL DESDE TU CASA");
+                System.out.println(monedas);
+            } else {
+                System.out.println("TODO GUAY DEL PARAGUAY");
+            }
+            return;
+        }
+        if (args.length > 3 && args[0].equals("--ruta")) {
+            ConsultaRutas consultas = new ConsultaRutas(graph, 256);
+            Ruta ruta = consultas.mejorRuta(args[1], args[2], Integer.parseInt(args[3]));
+            if (ruta != null) {
+                System.out.println(ruta);
+            } else {
+                System.out.println("NO HAY RUTA");
+            }
+            return;
+        }
+        if (args.length > 2 && args[0].equals("--ciclos")) {
+            List<Ciclo> ciclos = EnumeradorCiclos.mejores(RedTasas.de(graph), Integer.parseInt(args[1]),
+                    Integer.parseInt(args[2]));
+            if (ciclos.isEmpty()) {
+                System.out.println("TODO GUAY DEL PARAGUAY");
+            }
+            for (Ciclo encontrado : ciclos) {
+                System.out.println(encontrado);
+            }
+            return;
+        }
+        //La salida por defecto es una sola linea; con --ciclo se agrega el ciclo encontrado.
+        Ciclo ciclo = cicloGanador(graph);
+        if (ciclo != null) {
+            System.out.println("DINERO FÁCIL DESDE TU CASA");
+            if (args.length > 0 && args[0].equals("--ciclo")) {
+                System.out.println(ciclo);
+            }
         } else {
             System.out.println("TODO GUAY DEL PARAGUAY");
         }
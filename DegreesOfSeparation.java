@@ -1,15 +1,44 @@
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 
 interface Graph<T> {
     boolean add(T vertex);
@@ -25,20 +54,42 @@ interface Graph<T> {
     Graph<T> subgraph(Collection<T> vertices);
 }
 
+/**Grafo con los vertices numerados 0..n-1 y los arcos guardados por id, como un CSR:
+ * los sucesores de v son outTarget(i) con i en [outStart(v), outEnd(v)) y sus
+ * predecesores inSource(i) con i en [inStart(v), inEnd(v)). Los recorridos por ids usan
+ * esta interfaz, asi sirven igual para un CSRGraph en memoria que para un MappedGraph.*/
+interface IndexedGraph<T> extends Graph<T> {
+    int vertexCount();
+    int edgeCount();
+    int idOf(T vertex);
+    T vertexAt(int id);
+    int outStart(int v);
+    int outEnd(int v);
+    int outTarget(int i);
+    int inStart(int v);
+    int inEnd(int v);
+    int inSource(int i);
+}
+
 class AdjacencyListGraph<T> implements Graph<T> {
     private Map<T, List<T>> adjacencyMap;
+    /**Indice inverso: para cada vertice guardamos la lista de sus predecesores, asi
+     * getInwardEdges y remove no tienen que recorrer todo el adjacencyMap.*/
+    private Map<T, List<T>> predecessorMap;
 
     //Metodo Constructor
     public AdjacencyListGraph() {
         adjacencyMap = new HashMap<>();
+        predecessorMap = new HashMap<>();
     }
 
     //Metodo add
     public boolean add(T vertex) {
         //Verificamos si el vertice que queremos agregar ya pertenece al HashMap.
         if (!contains(vertex)) {
-            //Si no pertenece es agregado al HashMap y se retorna true.
+            //Si no pertenece es agregado a ambos HashMap y se retorna true.
             adjacencyMap.put(vertex, new ArrayList<>());
+            predecessorMap.put(vertex, new ArrayList<>());
             return true;
         }
         //Si pertenece se retorna false.
@@ -56,6 +107,8 @@ class AdjacencyListGraph<T> implements Graph<T> {
             if (!sucesores.contains(to)) {
                 //Si no existe lo agregamos usando .add
                 sucesores.add(to);
+                //Mantenemos el indice inverso: from pasa a ser predecesor de to.
+                predecessorMap.get(to).add(from);
                 return true;
             }
         }
@@ -75,7 +128,11 @@ class AdjacencyListGraph<T> implements Graph<T> {
              * Esta llamada devuelve true si el elemento se encontraba en la lista y se 
              * eliminó exitosamente, y devuelve false si el elemento no se encontraba en
              *  la lista*/
-            return sucesores.remove(to);
+            if (sucesores.remove(to)) {
+                //Si el arco existia, tambien lo quitamos del indice inverso.
+                predecessorMap.get(to).remove(from);
+                return true;
+            }
         }
         return false;
     }
@@ -91,24 +148,15 @@ class AdjacencyListGraph<T> implements Graph<T> {
 
     //Metodo GetInwardEdges
     public List<T> getInwardEdges(T to) {
-        /**Creamos una lista nueva para almacenar los vértices que tienen arcos 
-         * hacia el vertice to.*/
-        List<T> predecesores = new ArrayList<>();
-        /**Usamos el metodo .keyset() de la clase HashMap para iterar sobre todos los 
-         * vertices del mapa.*/
-        for (T vertex : adjacencyMap.keySet()) {
-            /**Buscamos la lista de los sucesores del vertice vertex usando el metodo 
-             * .get() del HashMap.*/
-            List<T> sucesores = adjacencyMap.get(vertex);
-            /**Usamos el metodo .contains() de la clase ArrayList para verificar si la 
-             * lista de sucesores contiene al vertice to.*/
-            if (sucesores.contains(to)) {
-                /**Si es asi, entonces vertex es un predecesor de to, por lo que lo 
-                 * agregamos a la lista predecesores.*/
-                predecesores.add(vertex);
-            }
+        //Usamos contains() para verificar que el vertice to pertenezca al HashMap.
+        if (contains(to)) {
+            /**Si pertenece, el indice inverso ya tiene sus predecesores. Devolvemos una
+             * copia para que quien llame no pueda modificar el indice, lo que cuesta
+             * O(grado de entrada) en lugar de recorrer todo el grafo.*/
+            return new ArrayList<>(predecessorMap.get(to));
         }
-        return predecesores;
+        //Si to no pertenece al HashMap se retorna un ArrayList vacio.
+        return new ArrayList<>();
     }
 
     //Metodo GetOutwardEdges
@@ -151,14 +199,23 @@ class AdjacencyListGraph<T> implements Graph<T> {
         //Usamos contains() para verificar que el vertice vertex pertenezca al HashMap.
         if (contains(vertex)) {
             /**Si el vertice vertex pertenece, usamos el metodo .remove() de la clase
-             * HashMap para eliminarlo.*/
-            adjacencyMap.remove(vertex);
-            /**Usamos el metodo .values() de la clase HashMap para iterar sobre todos
-             * los valores del HashMap.*/
-            for (List<T> sucesores : adjacencyMap.values()) {
-                /**Usamos el método .remove() en cada lista de sucesores para eliminar 
-                 * el vértice vertex de todas las listas de sucesores.*/
-                sucesores.remove(vertex);
+             * HashMap para eliminarlo de ambos indices, guardando sus listas.*/
+            List<T> sucesores = adjacencyMap.remove(vertex);
+            List<T> predecesores = predecessorMap.remove(vertex);
+            /**Solo visitamos a los vecinos de vertex: cada sucesor deja de tenerlo como
+             * predecesor y cada predecesor deja de tenerlo como sucesor. Los lazos
+             * (vertex-vertex) ya no estan en los mapas, por eso revisamos null.*/
+            for (T sucesor : sucesores) {
+                List<T> lista = predecessorMap.get(sucesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
+            }
+            for (T predecesor : predecesores) {
+                List<T> lista = adjacencyMap.get(predecesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
             }
             return true;
         }
@@ -200,67 +257,2455 @@ class AdjacencyListGraph<T> implements Graph<T> {
 
 }
 
-public class DegreesOfSeparation {
+/**Grafo para compartir entre hilos que consultan y un hilo (o varios) que escriben. Las
+ * filas de cada vertice son arreglos inmutables en campos volatile: una escritura arma
+ * un arreglo nuevo y lo publica de una vez, asi las lecturas nunca esperan ni ven una
+ * fila a medias, y la lista que devuelven es una foto que se puede recorrer mientras el
+ * grafo cambia. Las escrituras se serializan por franjas de candados segun el hash de
+ * los vertices que tocan (en orden, para no trabarse); remove toma todas las franjas
+ * porque modifica las filas de todos sus vecinos. Una lectura puede ver un arco en la
+ * fila de salida de from antes que en la de entrada de to.*/
+class ConcurrentGraph<T> implements Graph<T> {
+    private static final int FRANJAS = 64;
+    private static final Object[] VACIA = new Object[0];
 
-    public static int getDegree(Graph<String> graph, String start, String finish) {
+    private static class Vecinos {
+        private volatile Object[] salida = VACIA;
+        private volatile Object[] entrada = VACIA;
+    }
 
-        if (start.equals(finish)) {
-            return 0;
+    private final ConcurrentHashMap<T, Vecinos> index = new ConcurrentHashMap<>();
+    private final ReentrantLock[] candados = new ReentrantLock[FRANJAS];
+
+    //Metodo Constructor
+    public ConcurrentGraph() {
+        for (int i = 0; i < FRANJAS; i++) {
+            candados[i] = new ReentrantLock();
         }
-        if (!(graph.contains(start)) || !(graph.contains(finish))) {
-            return -1;
+    }
+
+    //Metodo Of: copia un grafo por ids armando cada fila una sola vez.
+    public static <T> ConcurrentGraph<T> of(IndexedGraph<T> graph) {
+        ConcurrentGraph<T> copia = new ConcurrentGraph<>();
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            Vecinos vecinos = new Vecinos();
+            vecinos.salida = new Object[graph.outEnd(v) - graph.outStart(v)];
+            for (int i = graph.outStart(v); i < graph.outEnd(v); i++) {
+                vecinos.salida[i - graph.outStart(v)] = graph.vertexAt(graph.outTarget(i));
+            }
+            vecinos.entrada = new Object[graph.inEnd(v) - graph.inStart(v)];
+            for (int i = graph.inStart(v); i < graph.inEnd(v); i++) {
+                vecinos.entrada[i - graph.inStart(v)] = graph.vertexAt(graph.inSource(i));
+            }
+            copia.index.put(graph.vertexAt(v), vecinos);
         }
+        return copia;
+    }
 
-        Queue<String> q = new LinkedList<>();
-        Set<String> visited = new HashSet<>();
-        Queue<Integer> d = new LinkedList<>();
-        q.add(start);
-        visited.add(start);
-        d.add(1);
-        while (!q.isEmpty()) {
-            String vertex = q.poll();
-            int degree = d.poll();
-            for (String sucesor : graph.getOutwardEdges(vertex)) {
-                if (!visited.contains(sucesor)) {
-                    q.add(sucesor);
-                    visited.add(sucesor);
-                    d.add(degree+1);
-                    if (sucesor.equals(finish)) {
-                        return degree;
-                    }
-                }
+    private int franja(Object vertex) {
+        int h = vertex.hashCode();
+        return (h ^ (h >>> 16)) & (FRANJAS - 1);
+    }
+
+    //Toma las franjas de a y b de menor a mayor; devuelve las que hay que soltar.
+    private int[] tomar(Object a, Object b) {
+        int x = franja(a);
+        int y = franja(b);
+        int[] tomadas = x == y ? new int[] {x} : new int[] {Math.min(x, y), Math.max(x, y)};
+        for (int f : tomadas) {
+            candados[f].lock();
+        }
+        return tomadas;
+    }
+
+    private void soltar(int[] tomadas) {
+        for (int i = tomadas.length - 1; i >= 0; i--) {
+            candados[tomadas[i]].unlock();
+        }
+    }
+
+    private static int posicion(Object[] fila, Object vertex) {
+        for (int i = 0; i < fila.length; i++) {
+            if (fila[i].equals(vertex)) {
+                return i;
             }
         }
         return -1;
     }
 
-    
-    public static void main(String[] args) {
-        String start = args[0];
-        String finish = args[1];
-        Graph<String> graph = new AdjacencyListGraph<>();
+    private static Object[] agregado(Object[] fila, Object vertex) {
+        Object[] nueva = Arrays.copyOf(fila, fila.length + 1);
+        nueva[fila.length] = vertex;
+        return nueva;
+    }
+
+    private static Object[] quitado(Object[] fila, int i) {
+        Object[] nueva = new Object[fila.length - 1];
+        System.arraycopy(fila, 0, nueva, 0, i);
+        System.arraycopy(fila, i + 1, nueva, i, fila.length - i - 1);
+        return nueva;
+    }
+
+    //Metodo add
+    public boolean add(T vertex) {
+        int[] tomadas = tomar(vertex, vertex);
         try {
-            File inputFile = new File("input.txt");
-            Scanner scanner = new Scanner(inputFile);
+            return index.putIfAbsent(vertex, new Vecinos()) == null;
+        } finally {
+            soltar(tomadas);
+        }
+    }
 
-            while (scanner.hasNextLine()) {
-                String lines = scanner.nextLine();
-                String[] names = lines.split(" ");
+    //Metodo Connect
+    public boolean connect(T from, T to) {
+        int[] tomadas = tomar(from, to);
+        try {
+            Vecinos origen = index.get(from);
+            Vecinos destino = index.get(to);
+            if (origen == null || destino == null || posicion(origen.salida, to) >= 0) {
+                return false;
+            }
+            origen.salida = agregado(origen.salida, to);
+            destino.entrada = agregado(destino.entrada, from);
+            return true;
+        } finally {
+            soltar(tomadas);
+        }
+    }
 
-                if (names.length == 2) {
-                    String first = names[0];
-                    String second = names[1];
+    //Metodo Disconnect
+    public boolean disconnect(T from, T to) {
+        int[] tomadas = tomar(from, to);
+        try {
+            Vecinos origen = index.get(from);
+            Vecinos destino = index.get(to);
+            if (origen == null || destino == null) {
+                return false;
+            }
+            int i = posicion(origen.salida, to);
+            if (i < 0) {
+                return false;
+            }
+            origen.salida = quitado(origen.salida, i);
+            destino.entrada = quitado(destino.entrada, posicion(destino.entrada, from));
+            return true;
+        } finally {
+            soltar(tomadas);
+        }
+    }
 
-                    graph.add(first);
-                    graph.add(second);
-                    graph.connect(first, second);
-                    graph.connect(second, first);
+    //Metodo Remove
+    public boolean remove(T vertex) {
+        for (ReentrantLock candado : candados) {
+            candado.lock();
+        }
+        try {
+            Vecinos vecinos = index.remove(vertex);
+            if (vecinos == null) {
+                return false;
+            }
+            //Los lazos (vertex-vertex) ya no estan en el indice, por eso revisamos null.
+            for (Object sucesor : vecinos.salida) {
+                Vecinos otro = index.get(sucesor);
+                if (otro != null) {
+                    otro.entrada = quitado(otro.entrada, posicion(otro.entrada, vertex));
                 }
             }
-            scanner.close();
-        } catch (FileNotFoundException e) {
-            return;
+            for (Object predecesor : vecinos.entrada) {
+                Vecinos otro = index.get(predecesor);
+                if (otro != null) {
+                    otro.salida = quitado(otro.salida, posicion(otro.salida, vertex));
+                }
+            }
+            return true;
+        } finally {
+            for (int i = FRANJAS - 1; i >= 0; i--) {
+                candados[i].unlock();
+            }
+        }
+    }
+
+    //Metodo Contains
+    public boolean contains(T vertex) {
+        return index.containsKey(vertex);
+    }
+
+    //Las filas solo reciben vertices T desde add, connect y of, asi el cast no puede fallar.
+    @SuppressWarnings("unchecked")
+    private static <T> T elemento(Object[] fila, int i) {
+        return (T) fila[i];
+    }
+
+    //Vista de solo lectura sobre una fila ya publicada, que no cambia aunque el grafo si.
+    private List<T> vista(Object[] fila) {
+        return new AbstractList<T>() {
+            public T get(int i) {
+                return elemento(fila, i);
+            }
+
+            public int size() {
+                return fila.length;
+            }
+        };
+    }
+
+    //Metodo GetInwardEdges
+    public List<T> getInwardEdges(T to) {
+        Vecinos vecinos = index.get(to);
+        if (vecinos == null) {
+            return new ArrayList<>();
+        }
+        return vista(vecinos.entrada);
+    }
+
+    //Metodo GetOutwardEdges
+    public List<T> getOutwardEdges(T from) {
+        Vecinos vecinos = index.get(from);
+        if (vecinos == null) {
+            return new ArrayList<>();
+        }
+        return vista(vecinos.salida);
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<T> getVerticesConnectedTo(T vertex) {
+        if (contains(vertex)) {
+            Set<T> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            return new ArrayList<>(adjacentVertex);
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<T> getAllVertices() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    //Metodo Size
+    public int size() {
+        return index.size();
+    }
+
+    //Metodo Subgraph: el subgrafo tambien se puede compartir entre hilos.
+    public Graph<T> subgraph(Collection<T> vertices) {
+        ConcurrentGraph<T> subgraph = new ConcurrentGraph<>();
+        for (T vertex : vertices) {
+            if (contains(vertex)) {
+                subgraph.add(vertex);
+            }
+        }
+        for (T vertex : vertices) {
+            for (T sucesor : getOutwardEdges(vertex)) {
+                if (subgraph.contains(sucesor)) {
+                    subgraph.connect(vertex, sucesor);
+                }
+            }
+        }
+        return subgraph;
+    }
+}
+
+/**Grafo inmutable en formato CSR (compressed sparse row). Cada vertice recibe un id
+ * entero denso 0..n-1; los sucesores del vertice v son outTargets[outOffsets[v]] hasta
+ * outTargets[outOffsets[v+1]-1], y los predecesores se guardan igual en un segundo CSR.
+ * Asi cada arco cuesta dos int en lugar de un nodo de ArrayList dentro de un HashMap,
+ * y los recorridos pueden trabajar directamente sobre los arreglos primitivos.*/
+class CSRGraph<T> implements IndexedGraph<T> {
+    private final List<T> vertices;
+    private final Map<T, Integer> ids;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    private CSRGraph(List<T> vertices, Map<T, Integer> ids, int[] outOffsets, int[] outTargets,
+            int[] inOffsets, int[] inSources) {
+        this.vertices = vertices;
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+    }
+
+    //Metodo Of: congela un grafo existente conservando el orden de sus sucesores.
+    public static <T> CSRGraph<T> of(Graph<T> graph) {
+        Builder<T> builder = new Builder<>();
+        List<T> todos = graph.getAllVertices();
+        for (T vertex : todos) {
+            builder.add(vertex);
+        }
+        for (T vertex : todos) {
+            for (T sucesor : graph.getOutwardEdges(vertex)) {
+                builder.connect(vertex, sucesor);
+            }
+        }
+        return builder.build();
+    }
+
+    /**Constructor por flujo de arcos: internamos cada vertice una sola vez y guardamos
+     * los arcos como pares de ids en arreglos que crecen. build() los ordena por origen
+     * con un counting sort estable y elimina los arcos repetidos, igual que connect().*/
+    static class Builder<T> {
+        private final List<T> vertices = new ArrayList<>();
+        private final Map<T, Integer> ids = new HashMap<>();
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int edges = 0;
+
+        //Metodo add: devuelve el id del vertice, creandolo si no existia.
+        public int add(T vertex) {
+            Integer id = ids.get(vertex);
+            if (id == null) {
+                id = vertices.size();
+                ids.put(vertex, id);
+                vertices.add(vertex);
+            }
+            return id;
+        }
+
+        //Metodo connect: agrega el arco from-to, agregando los vertices si hace falta.
+        public void connect(T from, T to) {
+            connectIds(add(from), add(to));
+        }
+
+        //Metodo connectIds: agrega un arco entre dos ids ya devueltos por add().
+        public void connectIds(int u, int v) {
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = u;
+            to[edges] = v;
+            edges++;
+        }
+
+        //Metodo connectIds en bloque: agrega los arcos us[i]-vs[i] para i < cantidad.
+        public void connectIds(int[] us, int[] vs, int cantidad) {
+            if (edges + cantidad > from.length) {
+                int capacidad = Math.max(edges + cantidad, from.length * 2);
+                from = Arrays.copyOf(from, capacidad);
+                to = Arrays.copyOf(to, capacidad);
+            }
+            System.arraycopy(us, 0, from, edges, cantidad);
+            System.arraycopy(vs, 0, to, edges, cantidad);
+            edges += cantidad;
+        }
+
+        //Metodo Build
+        public CSRGraph<T> build() {
+            int n = vertices.size();
+            //Contamos los arcos de salida de cada vertice y hacemos la suma prefija.
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < edges; e++) {
+                offsets[from[e] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            //Repartimos los destinos respetando el orden en que llegaron los arcos.
+            int[] cursor = Arrays.copyOf(offsets, n);
+            int[] targets = new int[edges];
+            for (int e = 0; e < edges; e++) {
+                targets[cursor[from[e]]++] = to[e];
+            }
+            /**Compactamos cada fila quitando destinos repetidos. marca[w] guarda la ultima
+             * fila (mas uno) en la que vimos a w, asi el filtro es O(E) en total.*/
+            int[] marca = new int[n];
+            int[] outOffsets = new int[n + 1];
+            int m = 0;
+            for (int v = 0; v < n; v++) {
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    int w = targets[i];
+                    if (marca[w] != v + 1) {
+                        marca[w] = v + 1;
+                        targets[m++] = w;
+                    }
+                }
+                outOffsets[v + 1] = m;
+            }
+            int[] outTargets = Arrays.copyOf(targets, m);
+            //El CSR de entrada es la transpuesta del de salida, otra vez por conteo.
+            int[] inOffsets = new int[n + 1];
+            for (int i = 0; i < m; i++) {
+                inOffsets[outTargets[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                inOffsets[v + 1] += inOffsets[v];
+            }
+            int[] inCursor = Arrays.copyOf(inOffsets, n);
+            int[] inSources = new int[m];
+            for (int v = 0; v < n; v++) {
+                for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                    inSources[inCursor[outTargets[i]]++] = v;
+                }
+            }
+            return new CSRGraph<>(new ArrayList<>(vertices), new HashMap<>(ids), outOffsets, outTargets,
+                    inOffsets, inSources);
+        }
+
+        /**Metodo BuildParalelo: el mismo grafo que build(), con cada pasada repartida en el
+         * pool comun. Cada bloque de filas quita sus destinos repetidos con una tabla de
+         * hash propia (marca[] no se puede compartir entre hilos); las tablas llevan el
+         * sello v + 1 de la fila, asi no hay que limpiarlas entre una fila y otra.*/
+        public CSRGraph<T> buildParalelo() {
+            int n = vertices.size();
+            int[][] porOrigen = ordenarPorClave(from, to, edges, n);
+            int[] offsets = porOrigen[0];
+            int[] targets = porOrigen[1];
+            int bloques = Math.max(1, Math.min(n, 4 * ForkJoinPool.getCommonPoolParallelism()));
+            int[] outOffsets = new int[n + 1];
+            IntStream.range(0, bloques).parallel().forEach(b -> {
+                int[] claves = new int[16];
+                int[] sellos = new int[16];
+                for (int v = (int) ((long) n * b / bloques); v < (long) n * (b + 1) / bloques; v++) {
+                    int inicio = offsets[v];
+                    int fin = offsets[v + 1];
+                    if (2 * (fin - inicio) > claves.length) {
+                        claves = new int[Integer.highestOneBit(2 * (fin - inicio)) << 1];
+                        sellos = new int[claves.length];
+                    }
+                    int mascara = claves.length - 1;
+                    int m = inicio;
+                    for (int i = inicio; i < fin; i++) {
+                        int w = targets[i];
+                        int h = w * 0x9E3779B9;
+                        int casilla = (h ^ (h >>> 16)) & mascara;
+                        while (sellos[casilla] == v + 1 && claves[casilla] != w) {
+                            casilla = (casilla + 1) & mascara;
+                        }
+                        if (sellos[casilla] != v + 1) {
+                            sellos[casilla] = v + 1;
+                            claves[casilla] = w;
+                            targets[m++] = w;
+                        }
+                    }
+                    outOffsets[v + 1] = m - inicio;
+                }
+            });
+            Arrays.parallelPrefix(outOffsets, Integer::sum);
+            int m = outOffsets[n];
+            int[] outTargets = new int[m];
+            int[] fuentes = new int[m];
+            IntStream.range(0, bloques).parallel().forEach(b -> {
+                for (int v = (int) ((long) n * b / bloques); v < (long) n * (b + 1) / bloques; v++) {
+                    System.arraycopy(targets, offsets[v], outTargets, outOffsets[v], outOffsets[v + 1] - outOffsets[v]);
+                    Arrays.fill(fuentes, outOffsets[v], outOffsets[v + 1], v);
+                }
+            });
+            //La transpuesta sale del mismo counting sort, ahora por destino.
+            int[][] porDestino = ordenarPorClave(outTargets, fuentes, m, n);
+            return new CSRGraph<>(new ArrayList<>(vertices), new HashMap<>(ids), outOffsets, outTargets,
+                    porDestino[0], porDestino[1]);
+        }
+    }
+
+    /**Counting sort estable y paralelo de valores[0..cantidad) segun claves en 0..n-1.
+     * Los arcos se parten en tramos contiguos y cada tramo cuenta sus claves aparte; en
+     * cada fila los tramos escriben uno detras de otro, asi dentro de la fila se conserva
+     * el orden original. Devuelve los offsets de las filas y los valores ya ordenados.*/
+    private static int[][] ordenarPorClave(int[] claves, int[] valores, int cantidad, int n) {
+        int tramos = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), cantidad >> 16));
+        int[][] conteos = new int[tramos][];
+        IntStream.range(0, tramos).parallel().forEach(p -> {
+            int[] conteo = new int[n];
+            for (int e = (int) ((long) cantidad * p / tramos); e < (long) cantidad * (p + 1) / tramos; e++) {
+                conteo[claves[e]]++;
+            }
+            conteos[p] = conteo;
+        });
+        //conteos[p][v] pasa a ser donde empieza el tramo p dentro de la fila v.
+        int[] offsets = new int[n + 1];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int acumulado = 0;
+            for (int p = 0; p < tramos; p++) {
+                int c = conteos[p][v];
+                conteos[p][v] = acumulado;
+                acumulado += c;
+            }
+            offsets[v + 1] = acumulado;
+        });
+        Arrays.parallelPrefix(offsets, Integer::sum);
+        int[] ordenados = new int[cantidad];
+        IntStream.range(0, tramos).parallel().forEach(p -> {
+            int[] cursor = conteos[p];
+            for (int e = (int) ((long) cantidad * p / tramos); e < (long) cantidad * (p + 1) / tramos; e++) {
+                int v = claves[e];
+                ordenados[offsets[v] + cursor[v]++] = valores[e];
+            }
+        });
+        return new int[][] {offsets, ordenados};
+    }
+
+    //Metodos de acceso por id, pensados para los recorridos sobre arreglos primitivos.
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    //Devuelve el id del vertice o -1 si no pertenece al grafo.
+    public int idOf(T vertex) {
+        Integer id = ids.get(vertex);
+        if (id == null) {
+            return -1;
+        }
+        return id;
+    }
+
+    public T vertexAt(int id) {
+        return vertices.get(id);
+    }
+
+    public int outStart(int v) {
+        return outOffsets[v];
+    }
+
+    public int outEnd(int v) {
+        return outOffsets[v + 1];
+    }
+
+    public int outTarget(int i) {
+        return outTargets[i];
+    }
+
+    public int inStart(int v) {
+        return inOffsets[v];
+    }
+
+    public int inEnd(int v) {
+        return inOffsets[v + 1];
+    }
+
+    public int inSource(int i) {
+        return inSources[i];
+    }
+
+    //El grafo es inmutable: las operaciones que lo modifican no estan soportadas.
+    public boolean add(T vertex) {
+        throw new UnsupportedOperationException("CSRGraph es inmutable");
+    }
+
+    public boolean connect(T from, T to) {
+        throw new UnsupportedOperationException("CSRGraph es inmutable");
+    }
+
+    public boolean disconnect(T from, T to) {
+        throw new UnsupportedOperationException("CSRGraph es inmutable");
+    }
+
+    public boolean remove(T vertex) {
+        throw new UnsupportedOperationException("CSRGraph es inmutable");
+    }
+
+    //Metodo Contains
+    public boolean contains(T vertex) {
+        return ids.containsKey(vertex);
+    }
+
+    /**Las listas de vecinos son vistas de solo lectura sobre los arreglos, no copias,
+     * para que los recorridos que usan la interfaz Graph no creen listas nuevas.*/
+    private List<T> vista(int[] datos, int inicio, int fin) {
+        return new AbstractList<T>() {
+            public T get(int i) {
+                return vertices.get(datos[inicio + i]);
+            }
+
+            public int size() {
+                return fin - inicio;
+            }
+        };
+    }
+
+    //Metodo GetInwardEdges
+    public List<T> getInwardEdges(T to) {
+        int v = idOf(to);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(inSources, inOffsets[v], inOffsets[v + 1]);
+    }
+
+    //Metodo GetOutwardEdges
+    public List<T> getOutwardEdges(T from) {
+        int v = idOf(from);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(outTargets, outOffsets[v], outOffsets[v + 1]);
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<T> getVerticesConnectedTo(T vertex) {
+        if (contains(vertex)) {
+            Set<T> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            return new ArrayList<>(adjacentVertex);
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<T> getAllVertices() {
+        return new ArrayList<>(vertices);
+    }
+
+    //Metodo Size
+    public int size() {
+        return vertices.size();
+    }
+
+    //Metodo Subgraph: el subgrafo tambien se devuelve congelado.
+    public Graph<T> subgraph(Collection<T> vertices) {
+        Builder<T> builder = new Builder<>();
+        for (T vertex : vertices) {
+            if (contains(vertex)) {
+                builder.add(vertex);
+            }
+        }
+        for (T vertex : vertices) {
+            int v = idOf(vertex);
+            if (v < 0) {
+                continue;
+            }
+            for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                T sucesor = this.vertices.get(outTargets[i]);
+                if (vertices.contains(sucesor)) {
+                    builder.connect(vertex, sucesor);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
+
+/**Recibe cada linea valida de una lista de arcos: los ids de sus dos vertices y, si la
+ * linea tiene un tercer campo, su valor numerico (si no, 0).*/
+interface ConsumidorArista {
+    void aceptar(int from, int to, double valor);
+}
+
+/**Tabla de nombres de vertices: a cada nombre distinto le da un id denso 0..n-1. Los
+ * bytes de los nombres se guardan seguidos en un solo arreglo y la tabla es de
+ * direccionamiento abierto, asi buscar un nombre es calcular un hash y probar unas
+ * pocas casillas, sin crear un String hasta que alguien pide el nombre.*/
+class TablaNombres {
+    private int[] tabla = new int[1 << 10];
+    private int[] hashes = new int[256];
+    private int[] inicios = new int[257];
+    private byte[] bytes = new byte[1 << 12];
+    private String[] nombres = new String[256];
+    private int cantidad = 0;
+
+    public int size() {
+        return cantidad;
+    }
+
+    public String nombre(int id) {
+        if (nombres[id] == null) {
+            nombres[id] = new String(bytes, inicios[id], inicios[id + 1] - inicios[id], StandardCharsets.UTF_8);
+        }
+        return nombres[id];
+    }
+
+    //Id del nombre que ocupa datos[desde..hasta), creandolo si es nuevo.
+    public int id(ByteBuffer datos, int desde, int hasta) {
+        int h = 0;
+        for (int i = desde; i < hasta; i++) {
+            h = 31 * h + datos.get(i);
+        }
+        int mascara = tabla.length - 1;
+        int casilla = (h ^ (h >>> 16)) & mascara;
+        while (tabla[casilla] != 0) {
+            int id = tabla[casilla] - 1;
+            if (hashes[id] == h && iguales(id, datos, desde, hasta)) {
+                return id;
+            }
+            casilla = (casilla + 1) & mascara;
+        }
+        int id = cantidad;
+        int largo = hasta - desde;
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+            inicios = Arrays.copyOf(inicios, id * 2 + 1);
+            nombres = Arrays.copyOf(nombres, id * 2);
+        }
+        while (inicios[id] + largo > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        for (int i = 0; i < largo; i++) {
+            bytes[inicios[id] + i] = datos.get(desde + i);
+        }
+        inicios[id + 1] = inicios[id] + largo;
+        hashes[id] = h;
+        cantidad++;
+        tabla[casilla] = id + 1;
+        if (cantidad * 2 > tabla.length) {
+            agrandar();
+        }
+        return id;
+    }
+
+    public int hash(int id) {
+        return hashes[id];
+    }
+
+    //Compara el nombre id de esta tabla con el nombre otroId de otra tabla.
+    public boolean mismoNombre(int id, TablaNombres otra, int otroId) {
+        int largo = inicios[id + 1] - inicios[id];
+        if (hashes[id] != otra.hashes[otroId] || otra.inicios[otroId + 1] - otra.inicios[otroId] != largo) {
+            return false;
+        }
+        return Arrays.equals(bytes, inicios[id], inicios[id] + largo,
+                otra.bytes, otra.inicios[otroId], otra.inicios[otroId] + largo);
+    }
+
+    private boolean iguales(int id, ByteBuffer datos, int desde, int hasta) {
+        if (inicios[id + 1] - inicios[id] != hasta - desde) {
+            return false;
+        }
+        for (int i = 0; i < hasta - desde; i++) {
+            if (bytes[inicios[id] + i] != datos.get(desde + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Duplica la tabla y vuelve a ubicar cada id con el hash que ya tenia guardado.
+    private void agrandar() {
+        tabla = new int[tabla.length * 2];
+        int mascara = tabla.length - 1;
+        for (int id = 0; id < cantidad; id++) {
+            int casilla = (hashes[id] ^ (hashes[id] >>> 16)) & mascara;
+            while (tabla[casilla] != 0) {
+                casilla = (casilla + 1) & mascara;
+            }
+            tabla[casilla] = id + 1;
+        }
+    }
+}
+
+/**Lector de listas de arcos "a<sep>b" o "a<sep>b<sep>numero". El archivo se mapea en
+ * memoria con FileChannel.map, en ventanas que terminan en un fin de linea, y se recorre
+ * byte a byte buscando el separador y los fines de linea, sin Scanner ni String.split.
+ * Las lineas se aceptan con la misma regla que split: se quitan los campos vacios del
+ * final y tienen que quedar exactamente los campos pedidos. Los nombres pasan por una
+ * TablaNombres y el numero se lee directo de los bytes cuando es un decimal simple.*/
+class CargadorAristas {
+    private static final long VENTANA = 1L << 30;
+    //Potencias de 10 exactas en double, para leer decimales sin redondeos de mas.
+    private static final double[] POTENCIAS = new double[23];
+
+    static {
+        POTENCIAS[0] = 1;
+        for (int i = 1; i < POTENCIAS.length; i++) {
+            POTENCIAS[i] = POTENCIAS[i - 1] * 10;
+        }
+    }
+
+    private final byte[] separador;
+    private final int campos;
+    private final TablaNombres nombres = new TablaNombres();
+    private int[] inicioCampo = new int[4];
+    private int[] finCampo = new int[4];
+
+    public CargadorAristas(String separador, int campos) {
+        this.separador = separador.getBytes(StandardCharsets.UTF_8);
+        this.campos = campos;
+    }
+
+    public TablaNombres getNombres() {
+        return nombres;
+    }
+
+    public void cargar(File archivo, ConsumidorArista consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long inicio = 0;
+            while (inicio < tamano) {
+                MappedByteBuffer datos = ventana(canal, inicio, tamano);
+                procesar(datos, 0, datos.limit(), consumidor);
+                inicio += datos.limit();
+            }
+        }
+    }
+
+    /**Mapea la ventana del archivo que empieza en inicio. Si no es la ultima, su limit()
+     * queda justo despues del ultimo fin de linea, para no partir una linea en dos.*/
+    static MappedByteBuffer ventana(FileChannel canal, long inicio, long tamano) throws IOException {
+        int largo = (int) Math.min(VENTANA, tamano - inicio);
+        MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, inicio, largo);
+        if (inicio + largo < tamano) {
+            int fin = finDeLinea(datos, 0, largo);
+            datos.limit(fin == 0 ? largo : fin);
+        }
+        return datos;
+    }
+
+    //Posicion justo despues del ultimo fin de linea de datos[desde..hasta), o desde si no hay.
+    static int finDeLinea(ByteBuffer datos, int desde, int hasta) {
+        int fin = hasta;
+        while (fin > desde && datos.get(fin - 1) != '\n' && datos.get(fin - 1) != '\r') {
+            fin--;
+        }
+        return fin;
+    }
+
+    //Recorre las lineas de datos[desde..hasta); \n, \r y \r\n terminan una linea.
+    public void procesar(ByteBuffer datos, int desde, int hasta, ConsumidorArista consumidor) {
+        int linea = desde;
+        while (linea < hasta) {
+            int fin = linea;
+            while (fin < hasta && datos.get(fin) != '\n' && datos.get(fin) != '\r') {
+                fin++;
+            }
+            procesarLinea(datos, linea, fin, consumidor);
+            linea = fin + 1;
+        }
+    }
+
+    private void procesarLinea(ByteBuffer datos, int desde, int hasta, ConsumidorArista consumidor) {
+        int cantidad = 0;
+        int campo = desde;
+        for (int i = desde; i + separador.length <= hasta; ) {
+            if (esSeparador(datos, i)) {
+                cantidad = anotar(cantidad, campo, i);
+                i += separador.length;
+                campo = i;
+            } else {
+                i++;
+            }
+        }
+        cantidad = anotar(cantidad, campo, hasta);
+        while (cantidad > 0 && inicioCampo[cantidad - 1] == finCampo[cantidad - 1]) {
+            cantidad--;
+        }
+        if (cantidad != campos) {
+            return;
+        }
+        int from = nombres.id(datos, inicioCampo[0], finCampo[0]);
+        int to = nombres.id(datos, inicioCampo[1], finCampo[1]);
+        double valor = campos > 2 ? numero(datos, inicioCampo[2], finCampo[2]) : 0;
+        consumidor.aceptar(from, to, valor);
+    }
+
+    private boolean esSeparador(ByteBuffer datos, int i) {
+        for (int k = 0; k < separador.length; k++) {
+            if (datos.get(i + k) != separador[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int anotar(int cantidad, int inicio, int fin) {
+        if (cantidad == inicioCampo.length) {
+            inicioCampo = Arrays.copyOf(inicioCampo, cantidad * 2);
+            finCampo = Arrays.copyOf(finCampo, cantidad * 2);
+        }
+        inicioCampo[cantidad] = inicio;
+        finCampo[cantidad] = fin;
+        return cantidad + 1;
+    }
+
+    /**Lee un decimal [-]digitos[.digitos] directo de los bytes. Si tiene a lo sumo 15
+     * digitos y 22 decimales, mantisa / 10^decimales es exacto y queda redondeado igual
+     * que Double.parseDouble; cualquier otra forma se le pasa a Double.parseDouble.*/
+    private static double numero(ByteBuffer datos, int desde, int hasta) {
+        int i = desde;
+        boolean negativo = i < hasta && datos.get(i) == '-';
+        if (negativo) {
+            i++;
+        }
+        long mantisa = 0;
+        int digitos = 0;
+        int decimales = -1;
+        for (; i < hasta; i++) {
+            byte b = datos.get(i);
+            if (b >= '0' && b <= '9') {
+                mantisa = mantisa * 10 + (b - '0');
+                digitos++;
+                if (decimales >= 0) {
+                    decimales++;
+                }
+            } else if (b == '.' && decimales < 0) {
+                decimales = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == hasta && digitos > 0 && digitos <= 15 && decimales < POTENCIAS.length) {
+            double valor = decimales > 0 ? mantisa / POTENCIAS[decimales] : mantisa;
+            return negativo ? -valor : valor;
+        }
+        byte[] texto = new byte[hasta - desde];
+        for (int k = 0; k < texto.length; k++) {
+            texto[k] = datos.get(desde + k);
+        }
+        return Double.parseDouble(new String(texto, StandardCharsets.UTF_8));
+    }
+}
+
+/**Carga en paralelo una lista de arcos. Cada ventana mapeada se corta en trozos que
+ * terminan en un fin de linea y cada trozo se lee con su propio CargadorAristas, que da
+ * ids locales a sus nombres y guarda sus arcos en arreglos propios. Despues los nombres
+ * se juntan en una tabla concurrente que se queda con la primera aparicion de cada uno
+ * (trozo, id local); con eso los ids globales salen en orden de aparicion en el archivo
+ * y los arcos en el orden de sus lineas, igual que con la carga secuencial.*/
+class CargaParalela {
+    private static final int MINIMO_TROZO = 1 << 20;
+
+    /**Arcos de un trozo con ids locales. Al unir, cada id local guarda su casilla en la
+     * tabla de primeras apariciones y luego su id global.*/
+    private static class Trozo {
+        private final CargadorAristas cargador;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int cantidad = 0;
+        private int[] casillas;
+        private int[] global;
+
+        Trozo(String separador, int campos) {
+            cargador = new CargadorAristas(separador, campos);
+        }
+
+        void agregar(int u, int v) {
+            if (cantidad == from.length) {
+                from = Arrays.copyOf(from, cantidad * 2);
+                to = Arrays.copyOf(to, cantidad * 2);
+            }
+            from[cantidad] = u;
+            to[cantidad] = v;
+            cantidad++;
+        }
+    }
+
+    private final List<String> nombres;
+    private final int[] from;
+    private final int[] to;
+
+    private CargaParalela(List<String> nombres, int[] from, int[] to) {
+        this.nombres = nombres;
+        this.from = from;
+        this.to = to;
+    }
+
+    //Nombres de los vertices, en la posicion de su id.
+    public List<String> getNombres() {
+        return nombres;
+    }
+
+    public int getCantidad() {
+        return from.length;
+    }
+
+    public int[] getFrom() {
+        return from;
+    }
+
+    public int[] getTo() {
+        return to;
+    }
+
+    public static CargaParalela cargar(File archivo, String separador, int campos) throws IOException {
+        List<Trozo> trozos = new ArrayList<>();
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long inicio = 0;
+            while (inicio < tamano) {
+                MappedByteBuffer datos = CargadorAristas.ventana(canal, inicio, tamano);
+                trozos.addAll(leerVentana(datos, separador, campos));
+                inicio += datos.limit();
+            }
+        }
+        return unir(trozos);
+    }
+
+    /**Corta la ventana en trozos de al menos MINIMO_TROZO bytes y los lee en paralelo.
+     * Con un solo hilo se lee entera: mas trozos solo repetirian las tablas de nombres.*/
+    private static List<Trozo> leerVentana(ByteBuffer datos, String separador, int campos) {
+        int fin = datos.limit();
+        int hilos = ForkJoinPool.getCommonPoolParallelism();
+        int cantidad = hilos == 1 ? 1 : Math.max(1, Math.min(4 * hilos, fin / MINIMO_TROZO));
+        int[] cortes = new int[cantidad + 1];
+        for (int k = 1; k < cantidad; k++) {
+            cortes[k] = CargadorAristas.finDeLinea(datos, cortes[k - 1], (int) ((long) fin * k / cantidad));
+        }
+        cortes[cantidad] = fin;
+        Trozo[] trozos = new Trozo[cantidad];
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = new Trozo(separador, campos);
+            trozo.cargador.procesar(datos.duplicate(), cortes[k], cortes[k + 1],
+                    (u, v, valor) -> trozo.agregar(u, v));
+            trozos[k] = trozo;
+        });
+        return Arrays.asList(trozos);
+    }
+
+    private static CargaParalela unir(List<Trozo> trozos) {
+        int cantidad = trozos.size();
+        long total = 0;
+        for (Trozo trozo : trozos) {
+            total += trozo.cargador.getNombres().size();
+        }
+        /**Interno concurrente: cada casilla guarda ((trozo << 32) | id local) + 1 de la
+         * primera aparicion de un nombre, o 0 si esta libre. Los hilos insertan con CAS y,
+         * si el nombre ya estaba, bajan el valor al minimo.*/
+        AtomicLongArray primera = new AtomicLongArray(Integer.highestOneBit((int) Math.max(2, 2 * total)) << 1);
+        int mascara = primera.length() - 1;
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            TablaNombres tabla = trozo.cargador.getNombres();
+            trozo.casillas = new int[tabla.size()];
+            for (int id = 0; id < tabla.size(); id++) {
+                long propio = (((long) k << 32) | id) + 1;
+                int casilla = (tabla.hash(id) ^ (tabla.hash(id) >>> 16)) & mascara;
+                while (true) {
+                    long actual = primera.get(casilla);
+                    if (actual == 0) {
+                        if (primera.compareAndSet(casilla, 0, propio)) {
+                            break;
+                        }
+                    } else if (tabla.mismoNombre(id, trozos.get((int) ((actual - 1) >>> 32)).cargador.getNombres(),
+                            (int) (actual - 1))) {
+                        while (propio < actual && !primera.compareAndSet(casilla, actual, propio)) {
+                            actual = primera.get(casilla);
+                        }
+                        break;
+                    } else {
+                        casilla = (casilla + 1) & mascara;
+                    }
+                }
+                trozo.casillas[id] = casilla;
+            }
+        });
+        //Cada trozo numera los nombres que aparecen por primera vez en el; los de un
+        //trozo empiezan donde terminan los de los trozos anteriores.
+        int[] nuevos = new int[cantidad + 1];
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            trozo.global = new int[trozo.casillas.length];
+            int propios = 0;
+            for (int id = 0; id < trozo.global.length; id++) {
+                boolean esPrimera = primera.get(trozo.casillas[id]) == (((long) k << 32) | id) + 1;
+                trozo.global[id] = esPrimera ? propios++ : -1;
+            }
+            nuevos[k + 1] = propios;
+        });
+        Arrays.parallelPrefix(nuevos, Integer::sum);
+        String[] nombres = new String[nuevos[cantidad]];
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            for (int id = 0; id < trozo.global.length; id++) {
+                if (trozo.global[id] >= 0) {
+                    trozo.global[id] += nuevos[k];
+                    nombres[trozo.global[id]] = trozo.cargador.getNombres().nombre(id);
+                }
+            }
+        });
+        //Los nombres repetidos toman el id que les dio el trozo donde aparecieron primero.
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            for (int id = 0; id < trozo.global.length; id++) {
+                if (trozo.global[id] < 0) {
+                    long donde = primera.get(trozo.casillas[id]) - 1;
+                    trozo.global[id] = trozos.get((int) (donde >>> 32)).global[(int) donde];
+                }
+            }
+        });
+        int[] base = new int[cantidad + 1];
+        for (int k = 0; k < cantidad; k++) {
+            base[k + 1] = base[k] + trozos.get(k).cantidad;
+        }
+        int[] from = new int[base[cantidad]];
+        int[] to = new int[base[cantidad]];
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            for (int i = 0; i < trozo.cantidad; i++) {
+                from[base[k] + i] = trozo.global[trozo.from[i]];
+                to[base[k] + i] = trozo.global[trozo.to[i]];
+            }
+        });
+        return new CargaParalela(Arrays.asList(nombres), from, to);
+    }
+}
+
+/**Instantanea binaria de un grafo de nombres. Se escribe una vez y se abre con
+ * FileChannel.map: el grafo se sirve directo de las paginas mapeadas, sin convertir nada
+ * al abrir, y los procesos que abren el mismo archivo comparten esas paginas en el cache
+ * del sistema. Todo va en little endian y cada seccion empieza alineada a 8 bytes:
+ *   cabecera  MAGICO, VERSION, banderas, n, m, casillas, largo de los nombres, la
+ *             secuencia de la ultima mutacion de bitacora ya incluida (0 si ninguna) y el
+ *             CRC32 del archivo entero, calculado con esos 4 bytes en cero
+ *   inicios   n + 1 ints: donde empieza cada nombre dentro de la seccion de nombres
+ *   tabla     casillas ints: hash abierto de nombre a id + 1, con 0 en las libres
+ *   salida    n + 1 offsets y m destinos
+ *   entrada   n + 1 offsets y m origenes
+ *   pesos     m doubles, solo si esta la bandera CON_PESOS
+ *   nombres   los bytes UTF-8 de todos los nombres, uno detras de otro
+ * Al abrir se revisan la suma y la forma de las secciones, asi que un archivo danado da
+ * IOException en vez de respuestas equivocadas; eso lee el archivo una vez entero.
+ * El hash de un nombre es el de TablaNombres sobre sus bytes UTF-8.*/
+class MappedGraph implements IndexedGraph<String> {
+    static final int MAGICO = 0x47524146;
+    static final int VERSION = 2;
+    static final int CON_PESOS = 1;
+    private static final int CABECERA = 64;
+    private static final int SUMA = 40;
+
+    private final int n;
+    private final int m;
+    private final int mascara;
+    private final IntBuffer inicios;
+    private final IntBuffer tabla;
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+    private final ByteBuffer nombres;
+
+    private MappedGraph(FileChannel canal, int n, int m, int casillas, int banderas, long largoNombres)
+            throws IOException {
+        this.n = n;
+        this.m = m;
+        this.mascara = casillas - 1;
+        long[] secciones = secciones(n, m, casillas, banderas, largoNombres);
+        inicios = mapear(canal, secciones[0], secciones[1]).asIntBuffer();
+        tabla = mapear(canal, secciones[1], secciones[2]).asIntBuffer();
+        outOffsets = mapear(canal, secciones[2], secciones[3]).asIntBuffer();
+        outTargets = mapear(canal, secciones[3], secciones[4]).asIntBuffer();
+        inOffsets = mapear(canal, secciones[4], secciones[5]).asIntBuffer();
+        inSources = mapear(canal, secciones[5], secciones[6]).asIntBuffer();
+        nombres = mapear(canal, secciones[7], secciones[8]);
+    }
+
+    /**Posicion de cada seccion en el archivo: inicios, tabla, offsets y destinos de
+     * salida, offsets y origenes de entrada, pesos, nombres y el fin del archivo.*/
+    private static long[] secciones(int n, int m, int casillas, int banderas, long largoNombres) {
+        long[] largos = {4L * (n + 1), 4L * casillas, 4L * (n + 1), 4L * m, 4L * (n + 1), 4L * m,
+                (banderas & CON_PESOS) != 0 ? 8L * m : 0, largoNombres};
+        long[] secciones = new long[largos.length + 1];
+        secciones[0] = CABECERA;
+        for (int i = 0; i < largos.length; i++) {
+            secciones[i + 1] = (secciones[i] + largos[i] + 7) & ~7L;
+        }
+        return secciones;
+    }
+
+    private static ByteBuffer mapear(FileChannel canal, long desde, long hasta) throws IOException {
+        if (hasta - desde > Integer.MAX_VALUE) {
+            throw new IOException("Seccion de " + (hasta - desde) + " bytes, el maximo es 2 GB");
+        }
+        return canal.map(FileChannel.MapMode.READ_ONLY, desde, hasta - desde).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    //Abre una instantanea; si no es de este formato o de esta version lanza IOException.
+    public static MappedGraph abrir(File archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() < CABECERA) {
+                throw new IOException(archivo + " no es una instantanea de grafo");
+            }
+            ByteBuffer cabecera = mapear(canal, 0, CABECERA);
+            if (cabecera.getInt(0) != MAGICO) {
+                throw new IOException(archivo + " no es una instantanea de grafo");
+            }
+            if (cabecera.getInt(4) != VERSION) {
+                throw new IOException(archivo + " es de la version " + cabecera.getInt(4)
+                        + ", se esperaba la " + VERSION);
+            }
+            int banderas = cabecera.getInt(8);
+            int n = cabecera.getInt(12);
+            int m = cabecera.getInt(16);
+            int casillas = cabecera.getInt(20);
+            long largoNombres = cabecera.getLong(24);
+            if (n < 0 || m < 0 || casillas <= n || Integer.bitCount(casillas) != 1 || largoNombres < 0
+                    || largoNombres > Integer.MAX_VALUE) {
+                throw new IOException(archivo + " tiene una cabecera invalida");
+            }
+            long fin = secciones(n, m, casillas, banderas, largoNombres)[8];
+            if (canal.size() < fin) {
+                throw new IOException(archivo + " esta incompleto");
+            }
+            if (cabecera.getInt(SUMA) != suma(canal, fin)) {
+                throw new IOException(archivo + " no coincide con su suma de verificacion");
+            }
+            MappedGraph grafo = new MappedGraph(canal, n, m, casillas, banderas, largoNombres);
+            if (!grafo.esValido(largoNombres)) {
+                throw new IOException(archivo + " tiene secciones inconsistentes");
+            }
+            return grafo;
+        }
+    }
+
+    //Offsets que empiezan en 0, no bajan y llegan al total; ids y casillas dentro de rango.
+    private boolean esValido(long largoNombres) {
+        return creciente(inicios, n, largoNombres) && creciente(outOffsets, n, m) && creciente(inOffsets, n, m)
+                && enRango(outTargets, m, n) && enRango(inSources, m, n) && enRango(tabla, mascara + 1, n + 1);
+    }
+
+    private static boolean creciente(IntBuffer offsets, int n, long total) {
+        int anterior = 0;
+        for (int i = 0; i <= n; i++) {
+            if (offsets.get(i) < anterior) {
+                return false;
+            }
+            anterior = offsets.get(i);
+        }
+        return offsets.get(0) == 0 && anterior == total;
+    }
+
+    private static boolean enRango(IntBuffer valores, int cantidad, int limite) {
+        for (int i = 0; i < cantidad; i++) {
+            if (valores.get(i) < 0 || valores.get(i) >= limite) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //CRC32 de los primeros largo bytes del archivo, contando el campo de la suma como ceros.
+    private static int suma(FileChannel canal, long largo) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer cabecera = mapear(canal, 0, CABECERA);
+        crc.update(cabecera.slice(0, SUMA));
+        crc.update(new byte[4]);
+        crc.update(cabecera.slice(SUMA + 4, CABECERA - SUMA - 4));
+        for (long desde = CABECERA; desde < largo; desde += 1 << 30) {
+            crc.update(mapear(canal, desde, Math.min(largo, desde + (1 << 30))));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**Escribe la instantanea de un grafo por ids. Se escribe en un archivo temporal al
+     * lado y despues se renombra, asi quien ya tenga mapeada la version anterior la sigue
+     * leyendo entera y nadie ve un archivo a medio escribir.*/
+    public static void guardar(IndexedGraph<String> graph, File archivo) throws IOException {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        String[] nombres = new String[n];
+        int[] outOffsets = new int[n + 1];
+        int[] outTargets = new int[m];
+        int[] inOffsets = new int[n + 1];
+        int[] inSources = new int[m];
+        for (int v = 0; v < n; v++) {
+            nombres[v] = graph.vertexAt(v);
+            outOffsets[v + 1] = graph.outEnd(v);
+            inOffsets[v + 1] = graph.inEnd(v);
+        }
+        for (int i = 0; i < m; i++) {
+            outTargets[i] = graph.outTarget(i);
+            inSources[i] = graph.inSource(i);
+        }
+        escribir(archivo, nombres, outOffsets, outTargets, inOffsets, inSources, null);
+    }
+
+    static void escribir(File archivo, String[] nombres, int[] outOffsets, int[] outTargets, int[] inOffsets,
+            int[] inSources, double[] pesos) throws IOException {
+        int n = nombres.length;
+        int m = outTargets.length;
+        byte[][] bytes = new byte[n][];
+        int[] inicios = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            bytes[v] = nombres[v].getBytes(StandardCharsets.UTF_8);
+            inicios[v + 1] = Math.addExact(inicios[v], bytes[v].length);
+        }
+        int casillas = Integer.highestOneBit(Math.max(1, 2 * n - 1)) << 1;
+        int[] tabla = new int[casillas];
+        for (int v = 0; v < n; v++) {
+            int casilla = casilla(hash(bytes[v]), casillas - 1);
+            while (tabla[casilla] != 0) {
+                casilla = (casilla + 1) & (casillas - 1);
+            }
+            tabla[casilla] = v + 1;
+        }
+        int banderas = pesos != null ? CON_PESOS : 0;
+        long[] secciones = secciones(n, m, casillas, banderas, inicios[n]);
+        File temporal = new File(archivo.getPath() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bufer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            bufer.putInt(MAGICO).putInt(VERSION).putInt(banderas).putInt(n).putInt(m).putInt(casillas)
+                    .putLong(inicios[n]).putLong(0);
+            int[][] enteros = {inicios, tabla, outOffsets, outTargets, inOffsets, inSources};
+            for (int s = 0; s < enteros.length; s++) {
+                rellenar(canal, bufer, secciones[s]);
+                for (int x : enteros[s]) {
+                    if (bufer.remaining() < 4) {
+                        vaciar(canal, bufer);
+                    }
+                    bufer.putInt(x);
+                }
+            }
+            rellenar(canal, bufer, secciones[6]);
+            if (pesos != null) {
+                for (double x : pesos) {
+                    if (bufer.remaining() < 8) {
+                        vaciar(canal, bufer);
+                    }
+                    bufer.putDouble(x);
+                }
+            }
+            rellenar(canal, bufer, secciones[7]);
+            for (byte[] nombre : bytes) {
+                for (int i = 0; i < nombre.length; ) {
+                    if (!bufer.hasRemaining()) {
+                        vaciar(canal, bufer);
+                    }
+                    int largo = Math.min(bufer.remaining(), nombre.length - i);
+                    bufer.put(nombre, i, largo);
+                    i += largo;
+                }
+            }
+            rellenar(canal, bufer, secciones[8]);
+            vaciar(canal, bufer);
+            //La suma se calcula sobre lo ya escrito, con el mismo codigo que la revisa al abrir.
+            ByteBuffer campo = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            campo.putInt(0, suma(canal, secciones[8]));
+            while (campo.hasRemaining()) {
+                canal.write(campo, SUMA + campo.position());
+            }
+            canal.force(true);
+        }
+        Files.move(temporal.toPath(), archivo.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Escribe ceros hasta llegar a la posicion donde empieza la siguiente seccion.
+    private static void rellenar(FileChannel canal, ByteBuffer bufer, long posicion) throws IOException {
+        while (canal.position() + bufer.position() < posicion) {
+            if (!bufer.hasRemaining()) {
+                vaciar(canal, bufer);
+            }
+            bufer.put((byte) 0);
+        }
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer bufer) throws IOException {
+        bufer.flip();
+        while (bufer.hasRemaining()) {
+            canal.write(bufer);
+        }
+        bufer.clear();
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = 0;
+        for (byte b : bytes) {
+            h = 31 * h + b;
+        }
+        return h;
+    }
+
+    private static int casilla(int h, int mascara) {
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    //Metodos de acceso por id, leidos directo de las paginas mapeadas.
+    public int vertexCount() {
+        return n;
+    }
+
+    public int edgeCount() {
+        return m;
+    }
+
+    //Devuelve el id del vertice o -1 si no pertenece al grafo.
+    public int idOf(String vertex) {
+        byte[] bytes = vertex.getBytes(StandardCharsets.UTF_8);
+        int casilla = casilla(hash(bytes), mascara);
+        while (tabla.get(casilla) != 0) {
+            int id = tabla.get(casilla) - 1;
+            if (igual(id, bytes)) {
+                return id;
+            }
+            casilla = (casilla + 1) & mascara;
+        }
+        return -1;
+    }
+
+    private boolean igual(int id, byte[] bytes) {
+        int inicio = inicios.get(id);
+        if (inicios.get(id + 1) - inicio != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (nombres.get(inicio + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String vertexAt(int id) {
+        byte[] bytes = new byte[inicios.get(id + 1) - inicios.get(id)];
+        nombres.get(inicios.get(id), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int outStart(int v) {
+        return outOffsets.get(v);
+    }
+
+    public int outEnd(int v) {
+        return outOffsets.get(v + 1);
+    }
+
+    public int outTarget(int i) {
+        return outTargets.get(i);
+    }
+
+    public int inStart(int v) {
+        return inOffsets.get(v);
+    }
+
+    public int inEnd(int v) {
+        return inOffsets.get(v + 1);
+    }
+
+    public int inSource(int i) {
+        return inSources.get(i);
+    }
+
+    //La instantanea es de solo lectura: las operaciones que la modifican no estan soportadas.
+    public boolean add(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean connect(String from, String to) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean disconnect(String from, String to) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean remove(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    //Metodo Contains
+    public boolean contains(String vertex) {
+        return idOf(vertex) >= 0;
+    }
+
+    //Vista de solo lectura sobre una fila; cada get decodifica el nombre de las paginas.
+    private List<String> vista(IntBuffer datos, int inicio, int fin) {
+        return new AbstractList<String>() {
+            public String get(int i) {
+                return vertexAt(datos.get(inicio + i));
+            }
+
+            public int size() {
+                return fin - inicio;
+            }
+        };
+    }
+
+    //Metodo GetInwardEdges
+    public List<String> getInwardEdges(String to) {
+        int v = idOf(to);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(inSources, inStart(v), inEnd(v));
+    }
+
+    //Metodo GetOutwardEdges
+    public List<String> getOutwardEdges(String from) {
+        int v = idOf(from);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(outTargets, outStart(v), outEnd(v));
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<String> getVerticesConnectedTo(String vertex) {
+        if (contains(vertex)) {
+            Set<String> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            return new ArrayList<>(adjacentVertex);
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<String> getAllVertices() {
+        List<String> todos = new ArrayList<>(n);
+        for (int v = 0; v < n; v++) {
+            todos.add(vertexAt(v));
+        }
+        return todos;
+    }
+
+    //Metodo Size
+    public int size() {
+        return n;
+    }
+
+    //Metodo Subgraph: el subgrafo se arma en memoria como un CSRGraph.
+    public Graph<String> subgraph(Collection<String> vertices) {
+        CSRGraph.Builder<String> builder = new CSRGraph.Builder<>();
+        for (String vertex : vertices) {
+            if (contains(vertex)) {
+                builder.add(vertex);
+            }
+        }
+        for (String vertex : vertices) {
+            int v = idOf(vertex);
+            if (v < 0) {
+                continue;
+            }
+            for (int i = outStart(v); i < outEnd(v); i++) {
+                String sucesor = vertexAt(outTarget(i));
+                if (vertices.contains(sucesor)) {
+                    builder.connect(vertex, sucesor);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
+
+/**BFS sobre los ids enteros de un CSRGraph. La cola es un int[] en el que cada vertice
+ * entra una sola vez, la profundidad se lleva por niveles (el indice donde termina el
+ * nivel actual) y los visitados son un bitset long[]. Cada hilo reutiliza su propia
+ * instancia, asi una consulta no crea objetos; al terminar solo se apagan los bits de
+ * los vertices que quedaron en la cola, en lugar de limpiar todo el bitset.*/
+class RecorridoBFS {
+    private static final ThreadLocal<RecorridoBFS> POR_HILO = ThreadLocal.withInitial(RecorridoBFS::new);
+
+    private int[] cola = new int[0];
+    private long[] visitados = new long[0];
+    private int fin;
+
+    //Devuelve la instancia del hilo actual.
+    public static RecorridoBFS delHilo() {
+        return POR_HILO.get();
+    }
+
+    //Agranda los arreglos si el grafo tiene mas vertices que la ultima vez.
+    private void preparar(int n) {
+        if (cola.length < n) {
+            cola = new int[n];
+        }
+        int palabras = (n + 63) >>> 6;
+        if (visitados.length < palabras) {
+            visitados = new long[palabras];
+        }
+        fin = 0;
+    }
+
+    private boolean visitado(int v) {
+        return (visitados[v >>> 6] & (1L << v)) != 0;
+    }
+
+    private void visitar(int v) {
+        visitados[v >>> 6] |= 1L << v;
+        cola[fin++] = v;
+    }
+
+    //Deja el bitset en cero para la proxima consulta del hilo.
+    private void limpiar() {
+        for (int i = 0; i < fin; i++) {
+            visitados[cola[i] >>> 6] = 0;
+        }
+        fin = 0;
+    }
+
+    //Parametros de cambio de direccion de Beamer et al.: alfa para pasar a bottom-up, beta para volver.
+    private static final int ALFA = 14;
+    private static final int BETA = 24;
+
+    private long[] frontera = new long[0];
+
+    private void prepararFrontera(int n) {
+        int palabras = (n + 63) >>> 6;
+        if (frontera.length < palabras) {
+            frontera = new long[palabras];
+        }
+    }
+
+    /**Cantidad de arcos del camino mas corto de s a t, o -1 si t no es alcanzable. Con
+     * s == t devuelve 0.*/
+    public int distancia(IndexedGraph<?> graph, int s, int t) {
+        return distanciaAcotada(graph, s, t, Integer.MAX_VALUE);
+    }
+
+    /**Como distancia, pero no pasa del nivel limite: si t esta mas lejos devuelve -1 sin
+     * recorrer el resto del grafo.*/
+    public int distanciaAcotada(IndexedGraph<?> graph, int s, int t, int limite) {
+        if (s == t) {
+            return 0;
+        }
+        if (limite < 1) {
+            return -1;
+        }
+        preparar(graph.vertexCount());
+        visitar(s);
+        int cabeza = 0;
+        int finNivel = fin;
+        int degree = 1;
+        try {
+            while (cabeza < fin) {
+                int v = cola[cabeza++];
+                for (int i = graph.outStart(v); i < graph.outEnd(v); i++) {
+                    int w = graph.outTarget(i);
+                    if (!visitado(w)) {
+                        if (w == t) {
+                            return degree;
+                        }
+                        visitar(w);
+                    }
+                }
+                if (cabeza == finNivel) {
+                    finNivel = fin;
+                    if (degree == limite) {
+                        break;
+                    }
+                    degree++;
+                }
+            }
+            return -1;
+        } finally {
+            limpiar();
+        }
+    }
+
+    /**Llena dist con la distancia desde s a cada vertice (-1 si no se alcanza). Con
+     * haciaAtras se recorren los predecesores, y dist[v] es la distancia de v a s.*/
+    public void distancias(IndexedGraph<?> graph, int s, boolean haciaAtras, int[] dist) {
+        Arrays.fill(dist, -1);
+        preparar(graph.vertexCount());
+        visitar(s);
+        dist[s] = 0;
+        int cabeza = 0;
+        while (cabeza < fin) {
+            int v = cola[cabeza++];
+            int inicio = haciaAtras ? graph.inStart(v) : graph.outStart(v);
+            int hasta = haciaAtras ? graph.inEnd(v) : graph.outEnd(v);
+            for (int i = inicio; i < hasta; i++) {
+                int w = haciaAtras ? graph.inSource(i) : graph.outTarget(i);
+                if (!visitado(w)) {
+                    dist[w] = dist[v] + 1;
+                    visitar(w);
+                }
+            }
+        }
+        limpiar();
+    }
+
+    private int[] dist = new int[0];
+    private long[] objetivos = new long[0];
+
+    /**Responde de una vez las consultas indices[desde..hasta) que salen de s:
+     * respuestas[q] queda con la distancia de s a destinos[q] (-1 si no se alcanza o el
+     * destino es -1). El BFS se corta cuando ya se visitaron todos los destinos.*/
+    public void distanciasA(IndexedGraph<?> graph, int s, int[] destinos, int[] indices, int desde, int hasta,
+            int[] respuestas) {
+        int n = graph.vertexCount();
+        preparar(n);
+        if (dist.length < n) {
+            dist = new int[n];
+        }
+        if (objetivos.length < visitados.length) {
+            objetivos = new long[visitados.length];
+        }
+        int pendientes = 0;
+        for (int k = desde; k < hasta; k++) {
+            int t = destinos[indices[k]];
+            if (t >= 0 && t != s && (objetivos[t >>> 6] & (1L << t)) == 0) {
+                objetivos[t >>> 6] |= 1L << t;
+                pendientes++;
+            }
+        }
+        visitar(s);
+        dist[s] = 0;
+        int cabeza = 0;
+        while (cabeza < fin && pendientes > 0) {
+            int v = cola[cabeza++];
+            for (int i = graph.outStart(v); i < graph.outEnd(v); i++) {
+                int w = graph.outTarget(i);
+                if (!visitado(w)) {
+                    dist[w] = dist[v] + 1;
+                    visitar(w);
+                    if ((objetivos[w >>> 6] & (1L << w)) != 0) {
+                        pendientes--;
+                    }
+                }
+            }
+        }
+        for (int k = desde; k < hasta; k++) {
+            int t = destinos[indices[k]];
+            if (t < 0) {
+                respuestas[indices[k]] = -1;
+            } else {
+                respuestas[indices[k]] = visitado(t) ? dist[t] : -1;
+                objetivos[t >>> 6] = 0;
+            }
+        }
+        limpiar();
+    }
+
+    /**Entrega a consumer cada vertice a distancia 1..maxDegree de s, junto con su
+     * distancia, en orden de distancia. Se detiene al entregar limite vertices, aunque
+     * sea en medio de la lista de vecinos de un vertice, y los del ultimo nivel no se
+     * expanden. Devuelve cuantos vertices entrego.*/
+    public <T> int vecindad(IndexedGraph<T> graph, int s, int maxDegree, int limite, DistanceConsumer<? super T> consumer) {
+        if (maxDegree < 1 || limite < 1) {
+            return 0;
+        }
+        preparar(graph.vertexCount());
+        visitar(s);
+        int cabeza = 0;
+        int finNivel = fin;
+        int degree = 1;
+        int entregados = 0;
+        try {
+            while (cabeza < finNivel) {
+                int v = cola[cabeza++];
+                for (int i = graph.outStart(v); i < graph.outEnd(v); i++) {
+                    int w = graph.outTarget(i);
+                    if (!visitado(w)) {
+                        visitar(w);
+                        consumer.accept(graph.vertexAt(w), degree);
+                        entregados++;
+                        if (entregados == limite) {
+                            return entregados;
+                        }
+                    }
+                }
+                if (cabeza == finNivel && degree < maxDegree) {
+                    finNivel = fin;
+                    degree++;
+                }
+            }
+            return entregados;
+        } finally {
+            limpiar();
+        }
+    }
+
+    /**Igual que distancia, pero cada nivel se expande de arriba hacia abajo (los vecinos
+     * de la frontera) o de abajo hacia arriba (cada vertice no visitado busca entre sus
+     * predecesores uno que este en la frontera, y se detiene en el primero). Se pasa a
+     * bottom-up cuando los arcos que salen de la frontera superan a los que entran a los
+     * no visitados sobre ALFA, y se vuelve a top-down cuando la frontera baja de n/BETA
+     * vertices mientras se achica. Conviene en grafos de diametro chico, donde tras pocos
+     * saltos la frontera es gran parte del grafo y casi todos sus arcos llevan a vertices
+     * ya visitados.*/
+    public int distanciaDireccional(IndexedGraph<?> graph, int s, int t) {
+        if (s == t) {
+            return 0;
+        }
+        int n = graph.vertexCount();
+        preparar(n);
+        prepararFrontera(n);
+        visitar(s);
+        //Arcos que entran a vertices todavia no visitados, lo que revisaria un paso bottom-up.
+        long arcosNoVisitados = graph.edgeCount() - (graph.inEnd(s) - graph.inStart(s));
+        int inicioNivel = 0;
+        int degree = 1;
+        boolean bottomUp = false;
+        int tamanoAnterior = 0;
+        try {
+            while (inicioNivel < fin) {
+                int finNivel = fin;
+                long arcosFrontera = 0;
+                for (int k = inicioNivel; k < finNivel; k++) {
+                    arcosFrontera += graph.outEnd(cola[k]) - graph.outStart(cola[k]);
+                }
+                int tamano = finNivel - inicioNivel;
+                if (!bottomUp && arcosFrontera > arcosNoVisitados / ALFA) {
+                    bottomUp = true;
+                } else if (bottomUp && tamano < tamanoAnterior && tamano < n / BETA) {
+                    bottomUp = false;
+                }
+                tamanoAnterior = tamano;
+                boolean encontrado;
+                if (bottomUp) {
+                    encontrado = pasoBottomUp(graph, inicioNivel, finNivel, t);
+                } else {
+                    encontrado = pasoTopDown(graph, inicioNivel, finNivel, t);
+                }
+                if (encontrado) {
+                    return degree;
+                }
+                for (int k = finNivel; k < fin; k++) {
+                    arcosNoVisitados -= graph.inEnd(cola[k]) - graph.inStart(cola[k]);
+                }
+                inicioNivel = finNivel;
+                degree++;
+            }
+            return -1;
+        } finally {
+            limpiar();
+        }
+    }
+
+    //Los dos pasos devuelven true apenas descubren a t, sin terminar el nivel.
+    private boolean pasoTopDown(IndexedGraph<?> graph, int inicioNivel, int finNivel, int t) {
+        for (int k = inicioNivel; k < finNivel; k++) {
+            int v = cola[k];
+            for (int i = graph.outStart(v); i < graph.outEnd(v); i++) {
+                int w = graph.outTarget(i);
+                if (!visitado(w)) {
+                    if (w == t) {
+                        return true;
+                    }
+                    visitar(w);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**Marca la frontera en su bitset, recorre los no visitados palabra por palabra del
+     * bitset de visitados y deja la frontera otra vez en cero. Los vertices descubiertos
+     * se marcan al final del recorrido para que no cuenten como frontera de este nivel.*/
+    private boolean pasoBottomUp(IndexedGraph<?> graph, int inicioNivel, int finNivel, int t) {
+        for (int k = inicioNivel; k < finNivel; k++) {
+            frontera[cola[k] >>> 6] |= 1L << cola[k];
+        }
+        int n = graph.vertexCount();
+        boolean encontrado = false;
+        for (int palabra = 0; palabra << 6 < n && !encontrado; palabra++) {
+            long libres = ~visitados[palabra];
+            while (libres != 0 && !encontrado) {
+                int v = (palabra << 6) + Long.numberOfTrailingZeros(libres);
+                libres &= libres - 1;
+                if (v >= n) {
+                    break;
+                }
+                for (int i = graph.inStart(v); i < graph.inEnd(v); i++) {
+                    int u = graph.inSource(i);
+                    if ((frontera[u >>> 6] & (1L << u)) != 0) {
+                        cola[fin++] = v;
+                        encontrado = v == t;
+                        break;
+                    }
+                }
+            }
+        }
+        for (int k = finNivel; k < fin; k++) {
+            visitados[cola[k] >>> 6] |= 1L << cola[k];
+        }
+        for (int k = inicioNivel; k < finNivel; k++) {
+            frontera[cola[k] >>> 6] = 0;
+        }
+        return encontrado;
+    }
+}
+
+/**Indice de distancias precalculadas desde unos pocos vertices de grado alto (marcas).
+ * Para cada marca L se guarda la distancia de L a cada vertice y la de cada vertice a L,
+ * y por desigualdad triangular una consulta s-t queda entre
+ *   max(d(L,t) - d(L,s), d(s,L) - d(t,L))  y  min(d(s,L) + d(L,t)).
+ * Si las cotas coinciden se responde sin recorrer el grafo; si no, se hace un BFS que no
+ * pasa de la cota superior. El indice se guarda en disco con guardar() y se vuelve a leer
+ * con cargar(), y solo es valido para el grafo con el que se construyo. Por eso guarda
+ * una huella del texto de origen (largo y fecha) y del grafo (vertices y arcos), y
+ * corresponde() dice si todavia sirve.*/
+class OraculoDistancias implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final Map<String, Integer> ids;
+    private final int[][] desdeMarca;
+    private final int[][] haciaMarca;
+    //Huella de lo que se uso para construirlo.
+    private final int vertices;
+    private final int arcos;
+    private final long largoFuente;
+    private final long fechaFuente;
+
+    private OraculoDistancias(Map<String, Integer> ids, int[][] desdeMarca, int[][] haciaMarca,
+            IndexedGraph<String> graph, File fuente) {
+        this.ids = ids;
+        this.desdeMarca = desdeMarca;
+        this.haciaMarca = haciaMarca;
+        this.vertices = graph.vertexCount();
+        this.arcos = graph.edgeCount();
+        this.largoFuente = fuente.length();
+        this.fechaFuente = fuente.lastModified();
+    }
+
+    /**Construye el indice con las "cantidad" marcas de mayor grado (entrada mas salida).
+     * fuente es el archivo de texto del que se leyo el grafo.*/
+    public static OraculoDistancias construir(IndexedGraph<String> graph, int cantidad, File fuente) {
+        int n = graph.vertexCount();
+        Integer[] orden = new Integer[n];
+        for (int v = 0; v < n; v++) {
+            orden[v] = v;
+        }
+        Arrays.sort(orden, (a, b) -> Integer.compare(grado(graph, b), grado(graph, a)));
+        int k = Math.min(cantidad, n);
+        int[][] desdeMarca = new int[k][n];
+        int[][] haciaMarca = new int[k][n];
+        RecorridoBFS bfs = RecorridoBFS.delHilo();
+        for (int l = 0; l < k; l++) {
+            bfs.distancias(graph, orden[l], false, desdeMarca[l]);
+            bfs.distancias(graph, orden[l], true, haciaMarca[l]);
+        }
+        Map<String, Integer> ids = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            ids.put(graph.vertexAt(v), v);
+        }
+        return new OraculoDistancias(ids, desdeMarca, haciaMarca, graph, fuente);
+    }
+
+    //Dice si el indice se construyo con este grafo, leido de fuente tal como esta ahora.
+    public boolean corresponde(IndexedGraph<String> graph, File fuente) {
+        return vertices == graph.vertexCount() && arcos == graph.edgeCount()
+                && largoFuente == fuente.length() && fechaFuente == fuente.lastModified();
+    }
+
+    private static int grado(IndexedGraph<String> graph, int v) {
+        return graph.outEnd(v) - graph.outStart(v) + graph.inEnd(v) - graph.inStart(v);
+    }
+
+    /**Misma respuesta que DegreesOfSeparation.getDegree. Los vertices que no estan en el
+     * indice se resuelven con el BFS completo.*/
+    public int getDegree(IndexedGraph<String> graph, String start, String finish) {
+
+        if (start.equals(finish)) {
+            return 0;
+        }
+        int s = graph.idOf(start);
+        int t = graph.idOf(finish);
+        if (s < 0 || t < 0) {
+            return -1;
+        }
+        Integer is = ids.get(start);
+        Integer it = ids.get(finish);
+        if (is == null || it == null) {
+            return RecorridoBFS.delHilo().distancia(graph, s, t);
+        }
+        int inferior = 1;
+        int superior = Integer.MAX_VALUE;
+        for (int l = 0; l < desdeMarca.length; l++) {
+            int ls = desdeMarca[l][is];
+            int lt = desdeMarca[l][it];
+            int sl = haciaMarca[l][is];
+            int tl = haciaMarca[l][it];
+            /**Si L llega a s pero no a t, o t llega a L pero s no, entonces s no puede
+             * llegar a t: el camino s-t completaria el que falta.*/
+            if ((ls >= 0 && lt < 0) || (tl >= 0 && sl < 0)) {
+                return -1;
+            }
+            if (ls >= 0 && lt >= 0) {
+                inferior = Math.max(inferior, lt - ls);
+            }
+            if (sl >= 0 && tl >= 0) {
+                inferior = Math.max(inferior, sl - tl);
+            }
+            if (sl >= 0 && lt >= 0) {
+                superior = Math.min(superior, sl + lt);
+            }
+        }
+        if (inferior == superior) {
+            return superior;
+        }
+        //Si no aparece antes de la cota superior, la distancia es la cota.
+        int limite = superior == Integer.MAX_VALUE ? superior : superior - 1;
+        int d = RecorridoBFS.delHilo().distanciaAcotada(graph, s, t, limite);
+        if (d == -1 && superior != Integer.MAX_VALUE) {
+            return superior;
+        }
+        return d;
+    }
+
+    public void guardar(File archivo) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(archivo)))) {
+            out.writeObject(this);
+        }
+    }
+
+    public static OraculoDistancias cargar(File archivo) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(archivo)))) {
+            return (OraculoDistancias) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("El archivo no contiene un OraculoDistancias", e);
+        }
+    }
+}
+
+/**Modo por lotes: el grafo se carga una vez y se responden muchas consultas "a b"
+ * leidas de un archivo. Las consultas se leen en bloques; dentro de un bloque se agrupan
+ * por origen para que un solo BFS responda todos los destinos de ese origen, y los grupos
+ * se reparten en el ForkJoinPool comun sobre el grafo compartido, que es de solo lectura.
+ * Las respuestas se escriben en el orden de entrada, una por linea (-1 si la linea no
+ * tiene exactamente dos nombres), un bloque a la vez, asi la memoria no depende de la
+ * cantidad total de consultas.*/
+class ConsultasEnLote {
+    private static final int BLOQUE = 1 << 20;
+
+    public static void responder(IndexedGraph<String> graph, BufferedReader in, PrintWriter out) throws IOException {
+        int[] origenes = new int[BLOQUE];
+        int[] destinos = new int[BLOQUE];
+        int[] respuestas = new int[BLOQUE];
+        String lines = in.readLine();
+        while (lines != null) {
+            int cantidad = 0;
+            while (lines != null && cantidad < BLOQUE) {
+                String[] names = lines.split(" ");
+                if (names.length == 2) {
+                    //Mismo caso que getDegree: iguales dan 0 aunque no esten en el grafo.
+                    if (names[0].equals(names[1])) {
+                        origenes[cantidad] = -1;
+                        respuestas[cantidad] = 0;
+                    } else {
+                        origenes[cantidad] = graph.idOf(names[0]);
+                        destinos[cantidad] = graph.idOf(names[1]);
+                        respuestas[cantidad] = -1;
+                    }
+                } else {
+                    //Una linea mal formada igual lleva su respuesta, para no correr las demas.
+                    origenes[cantidad] = -1;
+                    respuestas[cantidad] = -1;
+                }
+                cantidad++;
+                lines = in.readLine();
+            }
+            responderBloque(graph, origenes, destinos, respuestas, cantidad);
+            for (int q = 0; q < cantidad; q++) {
+                out.println(respuestas[q]);
+            }
+        }
+        out.flush();
+    }
+
+    //Ordena las consultas por origen con un counting sort y corre un BFS por grupo.
+    private static void responderBloque(IndexedGraph<String> graph, int[] origenes, int[] destinos, int[] respuestas,
+            int cantidad) {
+        int n = graph.vertexCount();
+        int[] inicios = new int[n + 1];
+        for (int q = 0; q < cantidad; q++) {
+            if (origenes[q] >= 0) {
+                inicios[origenes[q] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            inicios[v + 1] += inicios[v];
+        }
+        int[] cursor = Arrays.copyOf(inicios, n);
+        int[] indices = new int[inicios[n]];
+        for (int q = 0; q < cantidad; q++) {
+            if (origenes[q] >= 0) {
+                indices[cursor[origenes[q]]++] = q;
+            }
+        }
+        int[] grupos = IntStream.range(0, n).filter(v -> inicios[v] < inicios[v + 1]).toArray();
+        Arrays.stream(grupos).parallel().forEach(v -> RecorridoBFS.delHilo().distanciasA(graph, v, destinos,
+                indices, inicios[v], inicios[v + 1], respuestas));
+    }
+}
+
+//Recibe cada vertice encontrado por un recorrido junto con su distancia al origen.
+interface DistanceConsumer<T> {
+    void accept(T vertex, int degree);
+}
+
+public class DegreesOfSeparation {
+    //Cantidad de marcas con las que se construye el oraculo de main.
+    private static final int MARCAS = 16;
+
+    public static int getDegree(Graph<String> graph, String start, String finish) {
+
+        if (start.equals(finish)) {
+            return 0;
+        }
+        if (!(graph.contains(start)) || !(graph.contains(finish))) {
+            return -1;
+        }
+        //Sobre un IndexedGraph se usa el recorrido por ids, que no crea objetos por vertice.
+        if (graph instanceof IndexedGraph) {
+            IndexedGraph<String> csr = (IndexedGraph<String>) graph;
+            return RecorridoBFS.delHilo().distancia(csr, csr.idOf(start), csr.idOf(finish));
+        }
+
+        Queue<String> q = new LinkedList<>();
+        Set<String> visited = new HashSet<>();
+        Queue<Integer> d = new LinkedList<>();
+        q.add(start);
+        visited.add(start);
+        d.add(1);
+        while (!q.isEmpty()) {
+            String vertex = q.poll();
+            int degree = d.poll();
+            for (String sucesor : graph.getOutwardEdges(vertex)) {
+                if (!visited.contains(sucesor)) {
+                    q.add(sucesor);
+                    visited.add(sucesor);
+                    d.add(degree+1);
+                    if (sucesor.equals(finish)) {
+                        return degree;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**Todos los vertices a lo sumo a maxDegree grados de start (sin contar a start), hasta
+     * un maximo de limite. Se entregan a consumer a medida que aparecen, en orden de
+     * distancia, sin armar una lista; sobre un CSRGraph el recorrido no crea objetos por
+     * vertice. Devuelve cuantos vertices se entregaron.*/
+    public static int getNeighborhood(Graph<String> graph, String start, int maxDegree, int limite,
+            DistanceConsumer<? super String> consumer) {
+
+        if (!(graph.contains(start)) || maxDegree < 1 || limite < 1) {
+            return 0;
+        }
+        if (graph instanceof IndexedGraph) {
+            IndexedGraph<String> csr = (IndexedGraph<String>) graph;
+            return RecorridoBFS.delHilo().vecindad(csr, csr.idOf(start), maxDegree, limite, consumer);
+        }
+
+        Queue<String> q = new LinkedList<>();
+        Set<String> visited = new HashSet<>();
+        Queue<Integer> d = new LinkedList<>();
+        q.add(start);
+        visited.add(start);
+        d.add(1);
+        int entregados = 0;
+        while (!q.isEmpty()) {
+            String vertex = q.poll();
+            int degree = d.poll();
+            if (degree > maxDegree) {
+                break;
+            }
+            for (String sucesor : graph.getOutwardEdges(vertex)) {
+                if (!visited.contains(sucesor)) {
+                    q.add(sucesor);
+                    visited.add(sucesor);
+                    d.add(degree+1);
+                    consumer.accept(sucesor, degree);
+                    entregados++;
+                    if (entregados == limite) {
+                        return entregados;
+                    }
+                }
+            }
+        }
+        return entregados;
+    }
+
+    /**BFS bidireccional: una frontera avanza desde start por los sucesores y otra desde
+     * finish por los predecesores. En cada ronda se expande un nivel completo de la
+     * frontera mas pequena; al terminar el nivel en que las dos se tocan, el menor
+     * largo encontrado es la distancia. Devuelve lo mismo que getDegree.*/
+    public static int getDegreeBidirectional(Graph<String> graph, String start, String finish) {
+
+        if (start.equals(finish)) {
+            return 0;
+        }
+        if (!(graph.contains(start)) || !(graph.contains(finish))) {
+            return -1;
+        }
+
+        Map<String, Integer> desdeStart = new HashMap<>();
+        Map<String, Integer> desdeFinish = new HashMap<>();
+        List<String> fronteraStart = new ArrayList<>();
+        List<String> fronteraFinish = new ArrayList<>();
+        desdeStart.put(start, 0);
+        desdeFinish.put(finish, 0);
+        fronteraStart.add(start);
+        fronteraFinish.add(finish);
+        while (!fronteraStart.isEmpty() && !fronteraFinish.isEmpty()) {
+            int mejor;
+            if (fronteraStart.size() <= fronteraFinish.size()) {
+                mejor = expandir(graph, fronteraStart, desdeStart, desdeFinish, true);
+            } else {
+                mejor = expandir(graph, fronteraFinish, desdeFinish, desdeStart, false);
+            }
+            if (mejor != -1) {
+                return mejor;
+            }
+        }
+        return -1;
+    }
+
+    /**Expande un nivel de la frontera (por sucesores si haciaAdelante, si no por
+     * predecesores) y la reemplaza por el nivel siguiente. Devuelve el camino mas corto
+     * que pasa por un vertice ya alcanzado por el otro lado, o -1 si no se tocaron.*/
+    private static int expandir(Graph<String> graph, List<String> frontera, Map<String, Integer> propios,
+            Map<String, Integer> otros, boolean haciaAdelante) {
+        List<String> siguiente = new ArrayList<>();
+        int mejor = -1;
+        for (String vertex : frontera) {
+            int degree = propios.get(vertex) + 1;
+            List<String> vecinos;
+            if (haciaAdelante) {
+                vecinos = graph.getOutwardEdges(vertex);
+            } else {
+                vecinos = graph.getInwardEdges(vertex);
+            }
+            for (String vecino : vecinos) {
+                if (!propios.containsKey(vecino)) {
+                    propios.put(vecino, degree);
+                    siguiente.add(vecino);
+                    Integer resto = otros.get(vecino);
+                    if (resto != null && (mejor == -1 || degree + resto < mejor)) {
+                        mejor = degree + resto;
+                    }
+                }
+            }
+        }
+        frontera.clear();
+        frontera.addAll(siguiente);
+        return mejor;
+    }
+
+    /**BFS que alterna entre expansion top-down y bottom-up segun el tamano de la
+     * frontera. Necesita los predecesores por id, asi que sobre otro tipo de grafo
+     * primero lo congela en un CSRGraph.*/
+    public static int getDegreeDirectionOptimizing(Graph<String> graph, String start, String finish) {
+
+        if (start.equals(finish)) {
+            return 0;
+        }
+        if (!(graph.contains(start)) || !(graph.contains(finish))) {
+            return -1;
+        }
+        IndexedGraph<String> csr;
+        if (graph instanceof IndexedGraph) {
+            csr = (IndexedGraph<String>) graph;
+        } else {
+            csr = CSRGraph.of(graph);
+        }
+        return RecorridoBFS.delHilo().distanciaDireccional(csr, csr.idOf(start), csr.idOf(finish));
+    }
+
+    /**Lee input.txt: cada linea "a b" es una amistad, que se guarda en ambos sentidos. El
+     * archivo se recorre con CargadorAristas y los arcos van directo al Builder por id.*/
+    public static CSRGraph<String> leerGrafo(File inputFile) throws IOException {
+        CargaParalela carga = CargaParalela.cargar(inputFile, " ", 2);
+        int cantidad = carga.getCantidad();
+        int[] from = carga.getFrom();
+        int[] to = carga.getTo();
+        //Cada linea da el arco first-second seguido de second-first, como antes.
+        int[] us = new int[2 * cantidad];
+        int[] vs = new int[2 * cantidad];
+        IntStream.range(0, cantidad).parallel().forEach(e -> {
+            us[2 * e] = from[e];
+            vs[2 * e] = to[e];
+            us[2 * e + 1] = to[e];
+            vs[2 * e + 1] = from[e];
+        });
+        //Los ids de la carga son densos y en orden de aparicion, igual que los del Builder.
+        CSRGraph.Builder<String> builder = new CSRGraph.Builder<>();
+        for (String nombre : carga.getNombres()) {
+            builder.add(nombre);
+        }
+        builder.connectIds(us, vs, 2 * cantidad);
+        return builder.buildParalelo();
+    }
+
+    /**Abre la instantanea binaria del grafo de texto. La escribe antes si no existe, si
+     * el texto cambio despues de escribirla o si es de otra version del formato.*/
+    public static MappedGraph abrirInstantanea(File texto, File instantanea) throws IOException {
+        if (instantanea.exists() && instantanea.lastModified() >= texto.lastModified()) {
+            try {
+                return MappedGraph.abrir(instantanea);
+            } catch (IOException e) {
+                System.err.println("Se vuelve a escribir " + instantanea + ": " + e.getMessage());
+            }
+        }
+        MappedGraph.guardar(leerGrafo(texto), instantanea);
+        return MappedGraph.abrir(instantanea);
+    }
+
+    /**Agrega las amistades "a b" que llegan por arcos, en ambos sentidos como leerGrafo.
+     * Se usa desde un hilo aparte mientras otros consultan el mismo grafo.*/
+    public static void ingerir(Graph<String> graph, BufferedReader arcos) throws IOException {
+        String linea;
+        while ((linea = arcos.readLine()) != null) {
+            String[] nombres = linea.split(" ");
+            if (nombres.length != 2) {
+                continue;
+            }
+            graph.add(nombres[0]);
+            graph.add(nombres[1]);
+            graph.connect(nombres[0], nombres[1]);
+            graph.connect(nombres[1], nombres[0]);
+        }
+    }
+
+    /**Responde las consultas "a b" de consultas sobre un ConcurrentGraph armado con el
+     * grafo inicial, mientras un hilo le agrega las amistades de arcos (o de la entrada
+     * estandar si no se indica o es "-"). El BFS lee cada fila sin candados cuando llega
+     * a ese vertice: cada fila es consistente por si sola, pero una consulta puede ver
+     * amistades que se agregaron mientras avanzaba y no ver otras que llegaron a la par.
+     * Como en --lote, cada linea de consultas tiene su respuesta y las mal formadas dan -1.
+     * Si los arcos vienen de un archivo se espera a terminar de leerlo; si vienen de la
+     * entrada estandar, que puede no cerrarse nunca, el hilo es daemon y se deja de leer
+     * al terminar las consultas.*/
+    public static void concurrente(IndexedGraph<String> inicial, File consultas, String arcos)
+            throws IOException, InterruptedException {
+        ConcurrentGraph<String> graph = ConcurrentGraph.of(inicial);
+        boolean estandar = arcos == null || arcos.equals("-");
+        BufferedReader entrada = estandar
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : new BufferedReader(new FileReader(arcos, StandardCharsets.UTF_8));
+        Thread ingesta = new Thread(() -> {
+            try (BufferedReader in = entrada) {
+                ingerir(graph, in);
+            } catch (IOException e) {
+                System.err.println("Se detuvo la ingesta: " + e.getMessage());
+            }
+        }, "ingesta");
+        ingesta.setDaemon(estandar);
+        ingesta.start();
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+        try (BufferedReader in = new BufferedReader(new FileReader(consultas, StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                String[] nombres = linea.split(" ");
+                out.println(nombres.length == 2 ? getDegree(graph, nombres[0], nombres[1]) : -1);
+            }
+        }
+        out.flush();
+        if (!estandar) {
+            ingesta.join();
+        }
+    }
+
+    /**Lee el oraculo guardado si corresponde al grafo y al texto actuales. Si no existe,
+     * no se puede leer o el texto cambio despues de construirlo, lo construye de nuevo y
+     * lo guarda.*/
+    public static OraculoDistancias abrirOraculo(IndexedGraph<String> graph, File texto, File archivo) {
+        if (archivo.exists()) {
+            try {
+                OraculoDistancias oraculo = OraculoDistancias.cargar(archivo);
+                if (oraculo.corresponde(graph, texto)) {
+                    return oraculo;
+                }
+                System.err.println("Se vuelve a construir " + archivo + ": " + texto + " cambio");
+            } catch (IOException e) {
+                System.err.println("Se vuelve a construir " + archivo + ": " + e.getMessage());
+            }
+        }
+        OraculoDistancias oraculo = OraculoDistancias.construir(graph, MARCAS, texto);
+        try {
+            oraculo.guardar(archivo);
+        } catch (IOException e) {
+            System.err.println("No se pudo guardar " + archivo + ": " + e.getMessage());
+        }
+        return oraculo;
+    }
+
+    private static final String USO = String.join(System.lineSeparator(),
+            "Uso: java DegreesOfSeparation [--instantanea] [modo] argumentos",
+            "  a b                              grados entre a y b con getDegree",
+            "  --bidireccional a b              BFS desde ambos extremos",
+            "  --direccional a b                BFS que alterna entre empujar y tirar",
+            "  --oraculo a b                    con el indice de marcas de oraculo.bin",
+            "  --lote consultas                 una consulta \"a b\" por linea del archivo",
+            "  --vecindad a grados [limite]     vertices a lo sumo a grados de a",
+            "  --concurrente consultas [arcos]  consultas mientras se agregan amistades",
+            "  --instantanea                    abre el grafo mapeado desde input.grafo",
+            "");
+
+    //Abre el grafo de input.txt, o su instantanea input.grafo si se pidio --instantanea.
+    private static IndexedGraph<String> abrirGrafo(boolean instantanea) throws IOException {
+        if (instantanea) {
+            return abrirInstantanea(new File("input.txt"), new File("input.grafo"));
+        }
+        return leerGrafo(new File("input.txt"));
+    }
+
+    //Cuantos argumentos acepta cada modo despues de las opciones, o -1 si no existe.
+    private static int minimoDe(String modo) {
+        if (modo.equals("") || modo.equals("--bidireccional") || modo.equals("--direccional")
+                || modo.equals("--oraculo") || modo.equals("--vecindad")) {
+            return 2;
+        }
+        if (modo.equals("--lote") || modo.equals("--concurrente")) {
+            return 1;
+        }
+        return -1;
+    }
+
+    private static int maximoDe(String modo) {
+        if (modo.equals("--vecindad")) {
+            return 3;
+        }
+        if (modo.equals("--concurrente")) {
+            return 2;
+        }
+        return minimoDe(modo);
+    }
+
+    public static void main(String[] args) {
+        /**Las opciones van antes de los argumentos. --instantanea elige de donde sale el
+         * grafo (input.grafo mapeado en lugar de leer input.txt) y se puede combinar con
+         * cualquier modo. El modo es a lo sumo uno de --bidireccional, --direccional,
+         * --oraculo, --lote, --vecindad o --concurrente; sin modo se usa getDegree. El
+         * oraculo se lee de oraculo.bin, o se construye y se guarda ahi si no existe o si
+         * input.txt cambio desde que se construyo. Una opcion desconocida, dos modos o una
+         * cantidad de argumentos que el modo no acepta muestran el uso.*/
+        boolean instantanea = false;
+        String modo = "";
+        int i = 0;
+        while (i < args.length && args[i].startsWith("--")) {
+            if (args[i].equals("--instantanea")) {
+                instantanea = true;
+            } else if (modo.equals("") && minimoDe(args[i]) >= 0) {
+                modo = args[i];
+            } else if (minimoDe(args[i]) >= 0) {
+                System.err.println("Solo se puede elegir un modo: " + modo + " y " + args[i]);
+                System.err.print(USO);
+                return;
+            } else {
+                System.err.println("Opcion no valida: " + args[i]);
+                System.err.print(USO);
+                return;
+            }
+            i++;
+        }
+        args = Arrays.copyOfRange(args, i, args.length);
+        if (args.length < minimoDe(modo) || args.length > maximoDe(modo)) {
+            System.err.print(USO);
+            return;
+        }
+        IndexedGraph<String> graph;
+        try {
+            graph = abrirGrafo(instantanea);
+        } catch (IOException e) {
+            return;
+        }
+        if (modo.equals("--concurrente")) {
+            try {
+                concurrente(graph, new File(args[0]), args.length > 1 ? args[1] : null);
+            } catch (IOException | InterruptedException e) {
+                System.err.println(e.getMessage());
+            }
+        } else if (modo.equals("--lote")) {
+            try (BufferedReader consultas = new BufferedReader(new FileReader(args[0], StandardCharsets.UTF_8))) {
+                ConsultasEnLote.responder(graph, consultas,
+                        new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out))));
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+        } else if (modo.equals("--vecindad")) {
+            int limite = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+            getNeighborhood(graph, args[0], Integer.parseInt(args[1]), limite,
+                    (vertex, degree) -> out.println(vertex + " " + degree));
+            out.flush();
+        } else if (modo.equals("--bidireccional")) {
+            System.out.println(getDegreeBidirectional(graph, args[0], args[1]));
+        } else if (modo.equals("--direccional")) {
+            System.out.println(getDegreeDirectionOptimizing(graph, args[0], args[1]));
+        } else if (modo.equals("--oraculo")) {
+            OraculoDistancias oraculo = abrirOraculo(graph, new File("input.txt"), new File("oraculo.bin"));
+            System.out.println(oraculo.getDegree(graph, args[0], args[1]));
+        } else {
+            System.out.println(getDegree(graph, args[0], args[1]));
         }
-        System.out.println(getDegree(graph, start, finish));
     }
 }
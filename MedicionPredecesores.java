@@ -0,0 +1,293 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+interface Graph<T> {
+    boolean add(T vertex);
+    boolean connect(T from, T to);
+    boolean disconnect(T from, T to);
+    boolean contains(T vertex);
+    List<T> getInwardEdges(T to);
+    List<T> getOutwardEdges(T from);
+    List<T> getVerticesConnectedTo(T vertex);
+    List<T> getAllVertices();
+    boolean remove(T vertex);
+    int size();
+    Graph<T> subgraph(Collection<T> vertices);
+}
+
+class AdjacencyListGraph<T> implements Graph<T> {
+    private Map<T, List<T>> adjacencyMap;
+    /**Indice inverso: para cada vertice guardamos la lista de sus predecesores, asi
+     * getInwardEdges y remove no tienen que recorrer todo el adjacencyMap.*/
+    private Map<T, List<T>> predecessorMap;
+
+    //Metodo Constructor
+    public AdjacencyListGraph() {
+        adjacencyMap = new HashMap<>();
+        predecessorMap = new HashMap<>();
+    }
+
+    //Metodo add
+    public boolean add(T vertex) {
+        //Verificamos si el vertice que queremos agregar ya pertenece al HashMap.
+        if (!contains(vertex)) {
+            //Si no pertenece es agregado a ambos HashMap y se retorna true.
+            adjacencyMap.put(vertex, new ArrayList<>());
+            predecessorMap.put(vertex, new ArrayList<>());
+            return true;
+        }
+        //Si pertenece se retorna false.
+        return false;
+    }
+
+    //Metodo Connect
+    public boolean connect(T from, T to) {
+        //Verificamos si los vertices from y to pertenecen al HashMap.
+        if (contains(from) && contains(to)) {
+            /**Buscamos la lista de los sucesores del vertice from usando el metodo 
+             * .get() del HashMap.*/
+            List<T> sucesores = adjacencyMap.get(from);
+            //Verificamos los sucesores para ver si el arco from-to ya existe.
+            if (!sucesores.contains(to)) {
+                //Si no existe lo agregamos usando .add
+                sucesores.add(to);
+                //Mantenemos el indice inverso: from pasa a ser predecesor de to.
+                predecessorMap.get(to).add(from);
+                return true;
+            }
+        }
+        /**Si alguno de los vertices (from o to) no pertenecen al HashMap, o
+         * el arco from-to ya existe entonces se retorna false.*/
+        return false;
+    }
+
+    //Metodo Disconnect
+    public boolean disconnect(T from, T to) {
+        //Verificamos si los vertices from y to pertenecen al HashMap.
+        if (contains(from) && contains(to)) {
+            /**Buscamos la lista de los sucesores del vertice from usando el metodo
+             * .get() del HashMap.*/
+            List<T> sucesores = adjacencyMap.get(from);
+            /**Usamos el metodo .remove() de los ArrayList para eliminar el arco from-to.
+             * Esta llamada devuelve true si el elemento se encontraba en la lista y se 
+             * eliminó exitosamente, y devuelve false si el elemento no se encontraba en
+             *  la lista*/
+            if (sucesores.remove(to)) {
+                //Si el arco existia, tambien lo quitamos del indice inverso.
+                predecessorMap.get(to).remove(from);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Metodo Contains
+    public boolean contains(T vertex) {
+        /**Usamos el método .containsKey() propio de la clase HashMap para verificar si 
+         * la clave vertex está presente en el mapa. Si lo esta retorna true, si no
+         * retorna false.*/
+        boolean x = adjacencyMap.containsKey(vertex);
+        return x;
+    }
+
+    //Metodo GetInwardEdges
+    public List<T> getInwardEdges(T to) {
+        //Usamos contains() para verificar que el vertice to pertenezca al HashMap.
+        if (contains(to)) {
+            /**Si pertenece, el indice inverso ya tiene sus predecesores. Devolvemos una
+             * copia para que quien llame no pueda modificar el indice, lo que cuesta
+             * O(grado de entrada) en lugar de recorrer todo el grafo.*/
+            return new ArrayList<>(predecessorMap.get(to));
+        }
+        //Si to no pertenece al HashMap se retorna un ArrayList vacio.
+        return new ArrayList<>();
+    }
+
+    //Metodo GetOutwardEdges
+    public List<T> getOutwardEdges(T from) {
+        //Usamos contains() para verificar que el vertice from pertenezca al HashMap.
+        if (contains(from)) {
+            /**Si pertenece, usamos el metodo .get() de la clase HashMap para retornar
+             * la lista de sucesores del vertice from.*/
+            return adjacencyMap.get(from);
+        }
+        //Si vertex no pertenece al HashMap se retorna un ArrayList vacio.
+        return new ArrayList<>();
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<T> getVerticesConnectedTo(T vertex) {
+        //Usamos contains() para verificar que el vertice vertex pertenezca al HashMap.
+        if (contains(vertex)) {
+            /**Creamos un conjunto nuevo para almacenar los vértices que estan conectados
+             * al vertice vertex e introducimos los sucesores*/
+            Set<T> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            //Se agregan los predecesores.
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            //Se retorna el conjunto como lista.
+            return new ArrayList<>(adjacentVertex);
+        }
+        //Si vertex no pertenece al HashMap se retorna un ArrayList vacio.
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<T> getAllVertices() {
+        /**Usamos el metodo .keyset() de la clase HashMap para devolver un ArrayList 
+         * con todos los elementos dentro del HashMap */
+        return new ArrayList<>(adjacencyMap.keySet());
+    }
+
+    //Metodo Remove
+    public boolean remove(T vertex) {
+        //Usamos contains() para verificar que el vertice vertex pertenezca al HashMap.
+        if (contains(vertex)) {
+            /**Si el vertice vertex pertenece, usamos el metodo .remove() de la clase
+             * HashMap para eliminarlo de ambos indices, guardando sus listas.*/
+            List<T> sucesores = adjacencyMap.remove(vertex);
+            List<T> predecesores = predecessorMap.remove(vertex);
+            /**Solo visitamos a los vecinos de vertex: cada sucesor deja de tenerlo como
+             * predecesor y cada predecesor deja de tenerlo como sucesor. Los lazos
+             * (vertex-vertex) ya no estan en los mapas, por eso revisamos null.*/
+            for (T sucesor : sucesores) {
+                List<T> lista = predecessorMap.get(sucesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
+            }
+            for (T predecesor : predecesores) {
+                List<T> lista = adjacencyMap.get(predecesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
+            }
+            return true;
+        }
+        //Si el vertice vertex no pertenece se retorna false.
+        return false;
+    }
+
+    //Metodo Size
+    public int size() {
+        //Usamos el metodo .size() de la clase HashMap.
+        return adjacencyMap.size();
+    }
+
+    //Metodo Subgraph
+    public Graph<T> subgraph(Collection<T> vertices) {
+        //Creamos un nuevo objeto tipo Graph<T>.
+        Graph<T> subgraph = new AdjacencyListGraph<>();
+        //Iteramos sobre la collection de vertices tipo T.
+        for (T vertex : vertices) {
+            //Usamos contains para verificar si el vertice vertex pertenece al grafo original.
+            if (contains(vertex)) {
+                //Si pertenece agregamos el vertice vertex a los vertices del subgrafo.
+                subgraph.add(vertex);
+                //Usamos el metodo getOutwardEdges para conseguir los sucesores de vertex.
+                List<T> sucesores = getOutwardEdges(vertex);
+                //Iteramos sobre cada sucesor de vertex.
+                for (T sucesor : sucesores) {
+                    //Verificamos si la collection vertices contiene a sucesor.
+                    if (vertices.contains(sucesor)) {
+                        //Si el sucesor pertenece, lo agregamos al subgrafo y conectamos.
+                        subgraph.add(sucesor);
+                        subgraph.connect(vertex, sucesor);
+                    }
+                }
+            }
+        }
+        return subgraph;
+    }
+
+}
+
+/**Compara getInwardEdges y remove de AdjacencyListGraph, que usan el indice inverso,
+ * con el barrido completo de la version anterior. El barrido se reproduce sobre un mapa
+ * aparte con los mismos arcos, copiando el codigo original, para que ambas mediciones
+ * usen el mismo grafo aleatorio y las mismas muestras.
+ * Como los demas programas, trae su propia copia de Graph y AdjacencyListGraph:
+ *   java MedicionPredecesores [vertices arcos muestras]*/
+public class MedicionPredecesores {
+    //getInwardEdges original: recorre todas las listas de sucesores buscando a to.
+    private static <T> List<T> predecesoresPorBarrido(Map<T, List<T>> adjacencyMap, T to) {
+        List<T> predecesores = new ArrayList<>();
+        for (T vertex : adjacencyMap.keySet()) {
+            if (adjacencyMap.get(vertex).contains(to)) {
+                predecesores.add(vertex);
+            }
+        }
+        return predecesores;
+    }
+
+    //remove original: saca al vertice y lo busca en todas las listas de sucesores.
+    private static <T> void quitarPorBarrido(Map<T, List<T>> adjacencyMap, T vertex) {
+        adjacencyMap.remove(vertex);
+        for (List<T> sucesores : adjacencyMap.values()) {
+            sucesores.remove(vertex);
+        }
+    }
+
+    public static void medir(int vertices, int arcos, int muestras) {
+        Random random = new Random(1);
+        Graph<Integer> graph = new AdjacencyListGraph<>();
+        Map<Integer, List<Integer>> barrido = new HashMap<>();
+        for (int v = 0; v < vertices; v++) {
+            graph.add(v);
+            barrido.put(v, new ArrayList<>());
+        }
+        for (int e = 0; e < arcos; e++) {
+            int from = random.nextInt(vertices);
+            int to = random.nextInt(vertices);
+            if (graph.connect(from, to)) {
+                barrido.get(from).add(to);
+            }
+        }
+        int[] elegidos = random.ints(muestras, 0, vertices).distinct().toArray();
+
+        long inicio = System.nanoTime();
+        long antes = 0;
+        for (int v : elegidos) {
+            antes += predecesoresPorBarrido(barrido, v).size();
+        }
+        long barridoEntrada = System.nanoTime() - inicio;
+        inicio = System.nanoTime();
+        long despues = 0;
+        for (int v : elegidos) {
+            despues += graph.getInwardEdges(v).size();
+        }
+        long indiceEntrada = System.nanoTime() - inicio;
+        //Los dos caminos tienen que encontrar los mismos predecesores.
+        if (antes != despues) {
+            throw new IllegalStateException("Los predecesores no coinciden: " + antes + " y " + despues);
+        }
+
+        inicio = System.nanoTime();
+        for (int v : elegidos) {
+            quitarPorBarrido(barrido, v);
+        }
+        long barridoQuitar = System.nanoTime() - inicio;
+        inicio = System.nanoTime();
+        for (int v : elegidos) {
+            graph.remove(v);
+        }
+        long indiceQuitar = System.nanoTime() - inicio;
+
+        System.out.println(vertices + " vertices, " + arcos + " arcos, " + elegidos.length + " muestras");
+        System.out.println("getInwardEdges: barrido " + barridoEntrada / 1000000 + " ms, indice "
+                + indiceEntrada / 1000000 + " ms");
+        System.out.println("remove: barrido " + barridoQuitar / 1000000 + " ms, indice "
+                + indiceQuitar / 1000000 + " ms");
+    }
+
+    public static void main(String[] args) {
+        medir(args.length > 0 ? Integer.parseInt(args[0]) : 200000,
+                args.length > 1 ? Integer.parseInt(args[1]) : 2000000,
+                args.length > 2 ? Integer.parseInt(args[2]) : 200);
+    }
+}
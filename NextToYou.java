@@ -1,3 +1,4 @@
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -6,8 +7,38 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Scanner;
 
 interface Graph<T> {
@@ -24,179 +55,2917 @@ interface Graph<T> {
     Graph<T> subgraph(Collection<T> vertices);
 }
 
+/**Grafo con los vertices numerados 0..n-1 y los arcos guardados por id, como un CSR:
+ * los sucesores de v son outTarget(i) con i en [outStart(v), outEnd(v)) y sus
+ * predecesores inSource(i) con i en [inStart(v), inEnd(v)). Los recorridos por ids usan
+ * esta interfaz, asi sirven igual para un CSRGraph en memoria que para un MappedGraph.*/
+interface IndexedGraph<T> extends Graph<T> {
+    int vertexCount();
+    int edgeCount();
+    int idOf(T vertex);
+    T vertexAt(int id);
+    int outStart(int v);
+    int outEnd(int v);
+    int outTarget(int i);
+    int inStart(int v);
+    int inEnd(int v);
+    int inSource(int i);
+}
+
 class AdjacencyListGraph<T> implements Graph<T> {
     private Map<T, List<T>> adjacencyMap;
+    /**Indice inverso: para cada vertice guardamos la lista de sus predecesores, asi
+     * getInwardEdges y remove no tienen que recorrer todo el adjacencyMap.*/
+    private Map<T, List<T>> predecessorMap;
+
+    //Metodo Constructor
+    public AdjacencyListGraph() {
+        adjacencyMap = new HashMap<>();
+        predecessorMap = new HashMap<>();
+    }
+
+    //Metodo add
+    public boolean add(T vertex) {
+        //Verificamos si el vertice que queremos agregar ya pertenece al HashMap.
+        if (!contains(vertex)) {
+            //Si no pertenece es agregado a ambos HashMap y se retorna true.
+            adjacencyMap.put(vertex, new ArrayList<>());
+            predecessorMap.put(vertex, new ArrayList<>());
+            return true;
+        }
+        //Si pertenece se retorna false.
+        return false;
+    }
+
+    //Metodo Connect
+    public boolean connect(T from, T to) {
+        //Verificamos si los vertices from y to pertenecen al HashMap.
+        if (contains(from) && contains(to)) {
+            /**Buscamos la lista de los sucesores del vertice from usando el metodo 
+             * .get() del HashMap.*/
+            List<T> sucesores = adjacencyMap.get(from);
+            //Verificamos los sucesores para ver si el arco from-to ya existe.
+            if (!sucesores.contains(to)) {
+                //Si no existe lo agregamos usando .add
+                sucesores.add(to);
+                //Mantenemos el indice inverso: from pasa a ser predecesor de to.
+                predecessorMap.get(to).add(from);
+                return true;
+            }
+        }
+        /**Si alguno de los vertices (from o to) no pertenecen al HashMap, o
+         * el arco from-to ya existe entonces se retorna false.*/
+        return false;
+    }
+
+    //Metodo Disconnect
+    public boolean disconnect(T from, T to) {
+        //Verificamos si los vertices from y to pertenecen al HashMap.
+        if (contains(from) && contains(to)) {
+            /**Buscamos la lista de los sucesores del vertice from usando el metodo
+             * .get() del HashMap.*/
+            List<T> sucesores = adjacencyMap.get(from);
+            /**Usamos el metodo .remove() de los ArrayList para eliminar el arco from-to.
+             * Esta llamada devuelve true si el elemento se encontraba en la lista y se 
+             * eliminó exitosamente, y devuelve false si el elemento no se encontraba en
+             *  la lista*/
+            if (sucesores.remove(to)) {
+                //Si el arco existia, tambien lo quitamos del indice inverso.
+                predecessorMap.get(to).remove(from);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Metodo Contains
+    public boolean contains(T vertex) {
+        /**Usamos el método .containsKey() propio de la clase HashMap para verificar si 
+         * la clave vertex está presente en el mapa. Si lo esta retorna true, si no
+         * retorna false.*/
+        boolean x = adjacencyMap.containsKey(vertex);
+        return x;
+    }
+
+    //Metodo GetInwardEdges
+    public List<T> getInwardEdges(T to) {
+        //Usamos contains() para verificar que el vertice to pertenezca al HashMap.
+        if (contains(to)) {
+            /**Si pertenece, el indice inverso ya tiene sus predecesores. Devolvemos una
+             * copia para que quien llame no pueda modificar el indice, lo que cuesta
+             * O(grado de entrada) en lugar de recorrer todo el grafo.*/
+            return new ArrayList<>(predecessorMap.get(to));
+        }
+        //Si to no pertenece al HashMap se retorna un ArrayList vacio.
+        return new ArrayList<>();
+    }
+
+    //Metodo GetOutwardEdges
+    public List<T> getOutwardEdges(T from) {
+        //Usamos contains() para verificar que el vertice from pertenezca al HashMap.
+        if (contains(from)) {
+            /**Si pertenece, usamos el metodo .get() de la clase HashMap para retornar
+             * la lista de sucesores del vertice from.*/
+            return adjacencyMap.get(from);
+        }
+        //Si vertex no pertenece al HashMap se retorna un ArrayList vacio.
+        return new ArrayList<>();
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<T> getVerticesConnectedTo(T vertex) {
+        //Usamos contains() para verificar que el vertice vertex pertenezca al HashMap.
+        if (contains(vertex)) {
+            /**Creamos un conjunto nuevo para almacenar los vértices que estan conectados
+             * al vertice vertex e introducimos los sucesores*/
+            Set<T> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            //Se agregan los predecesores.
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            //Se retorna el conjunto como lista.
+            return new ArrayList<>(adjacentVertex);
+        }
+        //Si vertex no pertenece al HashMap se retorna un ArrayList vacio.
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<T> getAllVertices() {
+        /**Usamos el metodo .keyset() de la clase HashMap para devolver un ArrayList 
+         * con todos los elementos dentro del HashMap */
+        return new ArrayList<>(adjacencyMap.keySet());
+    }
+
+    //Metodo Remove
+    public boolean remove(T vertex) {
+        //Usamos contains() para verificar que el vertice vertex pertenezca al HashMap.
+        if (contains(vertex)) {
+            /**Si el vertice vertex pertenece, usamos el metodo .remove() de la clase
+             * HashMap para eliminarlo de ambos indices, guardando sus listas.*/
+            List<T> sucesores = adjacencyMap.remove(vertex);
+            List<T> predecesores = predecessorMap.remove(vertex);
+            /**Solo visitamos a los vecinos de vertex: cada sucesor deja de tenerlo como
+             * predecesor y cada predecesor deja de tenerlo como sucesor. Los lazos
+             * (vertex-vertex) ya no estan en los mapas, por eso revisamos null.*/
+            for (T sucesor : sucesores) {
+                List<T> lista = predecessorMap.get(sucesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
+            }
+            for (T predecesor : predecesores) {
+                List<T> lista = adjacencyMap.get(predecesor);
+                if (lista != null) {
+                    lista.remove(vertex);
+                }
+            }
+            return true;
+        }
+        //Si el vertice vertex no pertenece se retorna false.
+        return false;
+    }
+
+    //Metodo Size
+    public int size() {
+        //Usamos el metodo .size() de la clase HashMap.
+        return adjacencyMap.size();
+    }
+
+    //Metodo Subgraph
+    public Graph<T> subgraph(Collection<T> vertices) {
+        //Creamos un nuevo objeto tipo Graph<T>.
+        Graph<T> subgraph = new AdjacencyListGraph<>();
+        //Iteramos sobre la collection de vertices tipo T.
+        for (T vertex : vertices) {
+            //Usamos contains para verificar si el vertice vertex pertenece al grafo original.
+            if (contains(vertex)) {
+                //Si pertenece agregamos el vertice vertex a los vertices del subgrafo.
+                subgraph.add(vertex);
+                //Usamos el metodo getOutwardEdges para conseguir los sucesores de vertex.
+                List<T> sucesores = getOutwardEdges(vertex);
+                //Iteramos sobre cada sucesor de vertex.
+                for (T sucesor : sucesores) {
+                    //Verificamos si la collection vertices contiene a sucesor.
+                    if (vertices.contains(sucesor)) {
+                        //Si el sucesor pertenece, lo agregamos al subgrafo y conectamos.
+                        subgraph.add(sucesor);
+                        subgraph.connect(vertex, sucesor);
+                    }
+                }
+            }
+        }
+        return subgraph;
+    }
+
+}
+
+/**Grafo inmutable en formato CSR (compressed sparse row). Cada vertice recibe un id
+ * entero denso 0..n-1; los sucesores del vertice v son outTargets[outOffsets[v]] hasta
+ * outTargets[outOffsets[v+1]-1], y los predecesores se guardan igual en un segundo CSR.
+ * Asi cada arco cuesta dos int en lugar de un nodo de ArrayList dentro de un HashMap,
+ * y los recorridos pueden trabajar directamente sobre los arreglos primitivos.*/
+class CSRGraph<T> implements IndexedGraph<T> {
+    private final List<T> vertices;
+    private final Map<T, Integer> ids;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+
+    private CSRGraph(List<T> vertices, Map<T, Integer> ids, int[] outOffsets, int[] outTargets,
+            int[] inOffsets, int[] inSources) {
+        this.vertices = vertices;
+        this.ids = ids;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+    }
+
+    //Metodo Of: congela un grafo existente conservando el orden de sus sucesores.
+    public static <T> CSRGraph<T> of(Graph<T> graph) {
+        Builder<T> builder = new Builder<>();
+        List<T> todos = graph.getAllVertices();
+        for (T vertex : todos) {
+            builder.add(vertex);
+        }
+        for (T vertex : todos) {
+            for (T sucesor : graph.getOutwardEdges(vertex)) {
+                builder.connect(vertex, sucesor);
+            }
+        }
+        return builder.build();
+    }
+
+    /**Constructor por flujo de arcos: internamos cada vertice una sola vez y guardamos
+     * los arcos como pares de ids en arreglos que crecen. build() los ordena por origen
+     * con un counting sort estable y elimina los arcos repetidos, igual que connect().*/
+    static class Builder<T> {
+        private final List<T> vertices = new ArrayList<>();
+        private final Map<T, Integer> ids = new HashMap<>();
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int edges = 0;
+
+        //Metodo add: devuelve el id del vertice, creandolo si no existia.
+        public int add(T vertex) {
+            Integer id = ids.get(vertex);
+            if (id == null) {
+                id = vertices.size();
+                ids.put(vertex, id);
+                vertices.add(vertex);
+            }
+            return id;
+        }
+
+        //Metodo connect: agrega el arco from-to, agregando los vertices si hace falta.
+        public void connect(T from, T to) {
+            connectIds(add(from), add(to));
+        }
+
+        //Metodo connectIds: agrega un arco entre dos ids ya devueltos por add().
+        public void connectIds(int u, int v) {
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = u;
+            to[edges] = v;
+            edges++;
+        }
+
+        //Metodo connectIds en bloque: agrega los arcos us[i]-vs[i] para i < cantidad.
+        public void connectIds(int[] us, int[] vs, int cantidad) {
+            if (edges + cantidad > from.length) {
+                int capacidad = Math.max(edges + cantidad, from.length * 2);
+                from = Arrays.copyOf(from, capacidad);
+                to = Arrays.copyOf(to, capacidad);
+            }
+            System.arraycopy(us, 0, from, edges, cantidad);
+            System.arraycopy(vs, 0, to, edges, cantidad);
+            edges += cantidad;
+        }
+
+        //Metodo Build
+        public CSRGraph<T> build() {
+            int n = vertices.size();
+            //Contamos los arcos de salida de cada vertice y hacemos la suma prefija.
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < edges; e++) {
+                offsets[from[e] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            //Repartimos los destinos respetando el orden en que llegaron los arcos.
+            int[] cursor = Arrays.copyOf(offsets, n);
+            int[] targets = new int[edges];
+            for (int e = 0; e < edges; e++) {
+                targets[cursor[from[e]]++] = to[e];
+            }
+            /**Compactamos cada fila quitando destinos repetidos. marca[w] guarda la ultima
+             * fila (mas uno) en la que vimos a w, asi el filtro es O(E) en total.*/
+            int[] marca = new int[n];
+            int[] outOffsets = new int[n + 1];
+            int m = 0;
+            for (int v = 0; v < n; v++) {
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    int w = targets[i];
+                    if (marca[w] != v + 1) {
+                        marca[w] = v + 1;
+                        targets[m++] = w;
+                    }
+                }
+                outOffsets[v + 1] = m;
+            }
+            int[] outTargets = Arrays.copyOf(targets, m);
+            //El CSR de entrada es la transpuesta del de salida, otra vez por conteo.
+            int[] inOffsets = new int[n + 1];
+            for (int i = 0; i < m; i++) {
+                inOffsets[outTargets[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                inOffsets[v + 1] += inOffsets[v];
+            }
+            int[] inCursor = Arrays.copyOf(inOffsets, n);
+            int[] inSources = new int[m];
+            for (int v = 0; v < n; v++) {
+                for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                    inSources[inCursor[outTargets[i]]++] = v;
+                }
+            }
+            return new CSRGraph<>(new ArrayList<>(vertices), new HashMap<>(ids), outOffsets, outTargets,
+                    inOffsets, inSources);
+        }
+
+        /**Metodo BuildParalelo: el mismo grafo que build(), con cada pasada repartida en el
+         * pool comun. Cada bloque de filas quita sus destinos repetidos con una tabla de
+         * hash propia (marca[] no se puede compartir entre hilos); las tablas llevan el
+         * sello v + 1 de la fila, asi no hay que limpiarlas entre una fila y otra.*/
+        public CSRGraph<T> buildParalelo() {
+            int n = vertices.size();
+            int[][] porOrigen = ordenarPorClave(from, to, edges, n);
+            int[] offsets = porOrigen[0];
+            int[] targets = porOrigen[1];
+            int bloques = Math.max(1, Math.min(n, 4 * ForkJoinPool.getCommonPoolParallelism()));
+            int[] outOffsets = new int[n + 1];
+            IntStream.range(0, bloques).parallel().forEach(b -> {
+                int[] claves = new int[16];
+                int[] sellos = new int[16];
+                for (int v = (int) ((long) n * b / bloques); v < (long) n * (b + 1) / bloques; v++) {
+                    int inicio = offsets[v];
+                    int fin = offsets[v + 1];
+                    if (2 * (fin - inicio) > claves.length) {
+                        claves = new int[Integer.highestOneBit(2 * (fin - inicio)) << 1];
+                        sellos = new int[claves.length];
+                    }
+                    int mascara = claves.length - 1;
+                    int m = inicio;
+                    for (int i = inicio; i < fin; i++) {
+                        int w = targets[i];
+                        int h = w * 0x9E3779B9;
+                        int casilla = (h ^ (h >>> 16)) & mascara;
+                        while (sellos[casilla] == v + 1 && claves[casilla] != w) {
+                            casilla = (casilla + 1) & mascara;
+                        }
+                        if (sellos[casilla] != v + 1) {
+                            sellos[casilla] = v + 1;
+                            claves[casilla] = w;
+                            targets[m++] = w;
+                        }
+                    }
+                    outOffsets[v + 1] = m - inicio;
+                }
+            });
+            Arrays.parallelPrefix(outOffsets, Integer::sum);
+            int m = outOffsets[n];
+            int[] outTargets = new int[m];
+            int[] fuentes = new int[m];
+            IntStream.range(0, bloques).parallel().forEach(b -> {
+                for (int v = (int) ((long) n * b / bloques); v < (long) n * (b + 1) / bloques; v++) {
+                    System.arraycopy(targets, offsets[v], outTargets, outOffsets[v], outOffsets[v + 1] - outOffsets[v]);
+                    Arrays.fill(fuentes, outOffsets[v], outOffsets[v + 1], v);
+                }
+            });
+            //La transpuesta sale del mismo counting sort, ahora por destino.
+            int[][] porDestino = ordenarPorClave(outTargets, fuentes, m, n);
+            return new CSRGraph<>(new ArrayList<>(vertices), new HashMap<>(ids), outOffsets, outTargets,
+                    porDestino[0], porDestino[1]);
+        }
+    }
+
+    /**Counting sort estable y paralelo de valores[0..cantidad) segun claves en 0..n-1.
+     * Los arcos se parten en tramos contiguos y cada tramo cuenta sus claves aparte; en
+     * cada fila los tramos escriben uno detras de otro, asi dentro de la fila se conserva
+     * el orden original. Devuelve los offsets de las filas y los valores ya ordenados.*/
+    private static int[][] ordenarPorClave(int[] claves, int[] valores, int cantidad, int n) {
+        int tramos = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), cantidad >> 16));
+        int[][] conteos = new int[tramos][];
+        IntStream.range(0, tramos).parallel().forEach(p -> {
+            int[] conteo = new int[n];
+            for (int e = (int) ((long) cantidad * p / tramos); e < (long) cantidad * (p + 1) / tramos; e++) {
+                conteo[claves[e]]++;
+            }
+            conteos[p] = conteo;
+        });
+        //conteos[p][v] pasa a ser donde empieza el tramo p dentro de la fila v.
+        int[] offsets = new int[n + 1];
+        IntStream.range(0, n).parallel().forEach(v -> {
+            int acumulado = 0;
+            for (int p = 0; p < tramos; p++) {
+                int c = conteos[p][v];
+                conteos[p][v] = acumulado;
+                acumulado += c;
+            }
+            offsets[v + 1] = acumulado;
+        });
+        Arrays.parallelPrefix(offsets, Integer::sum);
+        int[] ordenados = new int[cantidad];
+        IntStream.range(0, tramos).parallel().forEach(p -> {
+            int[] cursor = conteos[p];
+            for (int e = (int) ((long) cantidad * p / tramos); e < (long) cantidad * (p + 1) / tramos; e++) {
+                int v = claves[e];
+                ordenados[offsets[v] + cursor[v]++] = valores[e];
+            }
+        });
+        return new int[][] {offsets, ordenados};
+    }
+
+    //Metodos de acceso por id, pensados para los recorridos sobre arreglos primitivos.
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    //Devuelve el id del vertice o -1 si no pertenece al grafo.
+    public int idOf(T vertex) {
+        Integer id = ids.get(vertex);
+        if (id == null) {
+            return -1;
+        }
+        return id;
+    }
+
+    public T vertexAt(int id) {
+        return vertices.get(id);
+    }
+
+    public int outStart(int v) {
+        return outOffsets[v];
+    }
+
+    public int outEnd(int v) {
+        return outOffsets[v + 1];
+    }
+
+    public int outTarget(int i) {
+        return outTargets[i];
+    }
+
+    public int inStart(int v) {
+        return inOffsets[v];
+    }
+
+    public int inEnd(int v) {
+        return inOffsets[v + 1];
+    }
+
+    public int inSource(int i) {
+        return inSources[i];
+    }
+
+    //El grafo es inmutable: las operaciones que lo modifican no estan soportadas.
+    public boolean add(T vertex) {
+        throw new UnsupportedOperationException("CSRGraph es inmutable");
+    }
+
+    public boolean connect(T from, T to) {
+        throw new UnsupportedOperationException("CSRGraph es inmutable");
+    }
+
+    public boolean disconnect(T from, T to) {
+        throw new UnsupportedOperationException("CSRGraph es inmutable");
+    }
+
+    public boolean remove(T vertex) {
+        throw new UnsupportedOperationException("CSRGraph es inmutable");
+    }
+
+    //Metodo Contains
+    public boolean contains(T vertex) {
+        return ids.containsKey(vertex);
+    }
+
+    /**Las listas de vecinos son vistas de solo lectura sobre los arreglos, no copias,
+     * para que los recorridos que usan la interfaz Graph no creen listas nuevas.*/
+    private List<T> vista(int[] datos, int inicio, int fin) {
+        return new AbstractList<T>() {
+            public T get(int i) {
+                return vertices.get(datos[inicio + i]);
+            }
+
+            public int size() {
+                return fin - inicio;
+            }
+        };
+    }
+
+    //Metodo GetInwardEdges
+    public List<T> getInwardEdges(T to) {
+        int v = idOf(to);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(inSources, inOffsets[v], inOffsets[v + 1]);
+    }
+
+    //Metodo GetOutwardEdges
+    public List<T> getOutwardEdges(T from) {
+        int v = idOf(from);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(outTargets, outOffsets[v], outOffsets[v + 1]);
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<T> getVerticesConnectedTo(T vertex) {
+        if (contains(vertex)) {
+            Set<T> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            return new ArrayList<>(adjacentVertex);
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<T> getAllVertices() {
+        return new ArrayList<>(vertices);
+    }
+
+    //Metodo Size
+    public int size() {
+        return vertices.size();
+    }
+
+    //Metodo Subgraph: el subgrafo tambien se devuelve congelado.
+    public Graph<T> subgraph(Collection<T> vertices) {
+        Builder<T> builder = new Builder<>();
+        for (T vertex : vertices) {
+            if (contains(vertex)) {
+                builder.add(vertex);
+            }
+        }
+        for (T vertex : vertices) {
+            int v = idOf(vertex);
+            if (v < 0) {
+                continue;
+            }
+            for (int i = outOffsets[v]; i < outOffsets[v + 1]; i++) {
+                T sucesor = this.vertices.get(outTargets[i]);
+                if (vertices.contains(sucesor)) {
+                    builder.connect(vertex, sucesor);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
+
+/**Recibe cada linea valida de una lista de arcos: los ids de sus dos vertices y, si la
+ * linea tiene un tercer campo, su valor numerico (si no, 0).*/
+interface ConsumidorArista {
+    void aceptar(int from, int to, double valor);
+}
+
+/**Tabla de nombres de vertices: a cada nombre distinto le da un id denso 0..n-1. Los
+ * bytes de los nombres se guardan seguidos en un solo arreglo y la tabla es de
+ * direccionamiento abierto, asi buscar un nombre es calcular un hash y probar unas
+ * pocas casillas, sin crear un String hasta que alguien pide el nombre.*/
+class TablaNombres {
+    private int[] tabla = new int[1 << 10];
+    private int[] hashes = new int[256];
+    private int[] inicios = new int[257];
+    private byte[] bytes = new byte[1 << 12];
+    private String[] nombres = new String[256];
+    private int cantidad = 0;
+
+    public int size() {
+        return cantidad;
+    }
+
+    public String nombre(int id) {
+        if (nombres[id] == null) {
+            nombres[id] = new String(bytes, inicios[id], inicios[id + 1] - inicios[id], StandardCharsets.UTF_8);
+        }
+        return nombres[id];
+    }
+
+    //Id del nombre que ocupa datos[desde..hasta), creandolo si es nuevo.
+    public int id(ByteBuffer datos, int desde, int hasta) {
+        int h = 0;
+        for (int i = desde; i < hasta; i++) {
+            h = 31 * h + datos.get(i);
+        }
+        int mascara = tabla.length - 1;
+        int casilla = (h ^ (h >>> 16)) & mascara;
+        while (tabla[casilla] != 0) {
+            int id = tabla[casilla] - 1;
+            if (hashes[id] == h && iguales(id, datos, desde, hasta)) {
+                return id;
+            }
+            casilla = (casilla + 1) & mascara;
+        }
+        int id = cantidad;
+        int largo = hasta - desde;
+        if (id == hashes.length) {
+            hashes = Arrays.copyOf(hashes, id * 2);
+            inicios = Arrays.copyOf(inicios, id * 2 + 1);
+            nombres = Arrays.copyOf(nombres, id * 2);
+        }
+        while (inicios[id] + largo > bytes.length) {
+            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+        }
+        for (int i = 0; i < largo; i++) {
+            bytes[inicios[id] + i] = datos.get(desde + i);
+        }
+        inicios[id + 1] = inicios[id] + largo;
+        hashes[id] = h;
+        cantidad++;
+        tabla[casilla] = id + 1;
+        if (cantidad * 2 > tabla.length) {
+            agrandar();
+        }
+        return id;
+    }
+
+    public int hash(int id) {
+        return hashes[id];
+    }
+
+    //Compara el nombre id de esta tabla con el nombre otroId de otra tabla.
+    public boolean mismoNombre(int id, TablaNombres otra, int otroId) {
+        int largo = inicios[id + 1] - inicios[id];
+        if (hashes[id] != otra.hashes[otroId] || otra.inicios[otroId + 1] - otra.inicios[otroId] != largo) {
+            return false;
+        }
+        return Arrays.equals(bytes, inicios[id], inicios[id] + largo,
+                otra.bytes, otra.inicios[otroId], otra.inicios[otroId] + largo);
+    }
+
+    private boolean iguales(int id, ByteBuffer datos, int desde, int hasta) {
+        if (inicios[id + 1] - inicios[id] != hasta - desde) {
+            return false;
+        }
+        for (int i = 0; i < hasta - desde; i++) {
+            if (bytes[inicios[id] + i] != datos.get(desde + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Duplica la tabla y vuelve a ubicar cada id con el hash que ya tenia guardado.
+    private void agrandar() {
+        tabla = new int[tabla.length * 2];
+        int mascara = tabla.length - 1;
+        for (int id = 0; id < cantidad; id++) {
+            int casilla = (hashes[id] ^ (hashes[id] >>> 16)) & mascara;
+            while (tabla[casilla] != 0) {
+                casilla = (casilla + 1) & mascara;
+            }
+            tabla[casilla] = id + 1;
+        }
+    }
+}
+
+/**Lector de listas de arcos "a<sep>b" o "a<sep>b<sep>numero". El archivo se mapea en
+ * memoria con FileChannel.map, en ventanas que terminan en un fin de linea, y se recorre
+ * byte a byte buscando el separador y los fines de linea, sin Scanner ni String.split.
+ * Las lineas se aceptan con la misma regla que split: se quitan los campos vacios del
+ * final y tienen que quedar exactamente los campos pedidos. Los nombres pasan por una
+ * TablaNombres y el numero se lee directo de los bytes cuando es un decimal simple.*/
+class CargadorAristas {
+    private static final long VENTANA = 1L << 30;
+    //Potencias de 10 exactas en double, para leer decimales sin redondeos de mas.
+    private static final double[] POTENCIAS = new double[23];
+
+    static {
+        POTENCIAS[0] = 1;
+        for (int i = 1; i < POTENCIAS.length; i++) {
+            POTENCIAS[i] = POTENCIAS[i - 1] * 10;
+        }
+    }
+
+    private final byte[] separador;
+    private final int campos;
+    private final TablaNombres nombres = new TablaNombres();
+    private int[] inicioCampo = new int[4];
+    private int[] finCampo = new int[4];
+
+    public CargadorAristas(String separador, int campos) {
+        this.separador = separador.getBytes(StandardCharsets.UTF_8);
+        this.campos = campos;
+    }
+
+    public TablaNombres getNombres() {
+        return nombres;
+    }
+
+    public void cargar(File archivo, ConsumidorArista consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long inicio = 0;
+            while (inicio < tamano) {
+                MappedByteBuffer datos = ventana(canal, inicio, tamano);
+                procesar(datos, 0, datos.limit(), consumidor);
+                inicio += datos.limit();
+            }
+        }
+    }
+
+    /**Mapea la ventana del archivo que empieza en inicio. Si no es la ultima, su limit()
+     * queda justo despues del ultimo fin de linea, para no partir una linea en dos.*/
+    static MappedByteBuffer ventana(FileChannel canal, long inicio, long tamano) throws IOException {
+        int largo = (int) Math.min(VENTANA, tamano - inicio);
+        MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, inicio, largo);
+        if (inicio + largo < tamano) {
+            int fin = finDeLinea(datos, 0, largo);
+            datos.limit(fin == 0 ? largo : fin);
+        }
+        return datos;
+    }
+
+    //Posicion justo despues del ultimo fin de linea de datos[desde..hasta), o desde si no hay.
+    static int finDeLinea(ByteBuffer datos, int desde, int hasta) {
+        int fin = hasta;
+        while (fin > desde && datos.get(fin - 1) != '\n' && datos.get(fin - 1) != '\r') {
+            fin--;
+        }
+        return fin;
+    }
+
+    //Recorre las lineas de datos[desde..hasta); \n, \r y \r\n terminan una linea.
+    public void procesar(ByteBuffer datos, int desde, int hasta, ConsumidorArista consumidor) {
+        int linea = desde;
+        while (linea < hasta) {
+            int fin = linea;
+            while (fin < hasta && datos.get(fin) != '\n' && datos.get(fin) != '\r') {
+                fin++;
+            }
+            procesarLinea(datos, linea, fin, consumidor);
+            linea = fin + 1;
+        }
+    }
+
+    private void procesarLinea(ByteBuffer datos, int desde, int hasta, ConsumidorArista consumidor) {
+        int cantidad = 0;
+        int campo = desde;
+        for (int i = desde; i + separador.length <= hasta; ) {
+            if (esSeparador(datos, i)) {
+                cantidad = anotar(cantidad, campo, i);
+                i += separador.length;
+                campo = i;
+            } else {
+                i++;
+            }
+        }
+        cantidad = anotar(cantidad, campo, hasta);
+        while (cantidad > 0 && inicioCampo[cantidad - 1] == finCampo[cantidad - 1]) {
+            cantidad--;
+        }
+        if (cantidad != campos) {
+            return;
+        }
+        int from = nombres.id(datos, inicioCampo[0], finCampo[0]);
+        int to = nombres.id(datos, inicioCampo[1], finCampo[1]);
+        double valor = campos > 2 ? numero(datos, inicioCampo[2], finCampo[2]) : 0;
+        consumidor.aceptar(from, to, valor);
+    }
+
+    private boolean esSeparador(ByteBuffer datos, int i) {
+        for (int k = 0; k < separador.length; k++) {
+            if (datos.get(i + k) != separador[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int anotar(int cantidad, int inicio, int fin) {
+        if (cantidad == inicioCampo.length) {
+            inicioCampo = Arrays.copyOf(inicioCampo, cantidad * 2);
+            finCampo = Arrays.copyOf(finCampo, cantidad * 2);
+        }
+        inicioCampo[cantidad] = inicio;
+        finCampo[cantidad] = fin;
+        return cantidad + 1;
+    }
+
+    /**Lee un decimal [-]digitos[.digitos] directo de los bytes. Si tiene a lo sumo 15
+     * digitos y 22 decimales, mantisa / 10^decimales es exacto y queda redondeado igual
+     * que Double.parseDouble; cualquier otra forma se le pasa a Double.parseDouble.*/
+    private static double numero(ByteBuffer datos, int desde, int hasta) {
+        int i = desde;
+        boolean negativo = i < hasta && datos.get(i) == '-';
+        if (negativo) {
+            i++;
+        }
+        long mantisa = 0;
+        int digitos = 0;
+        int decimales = -1;
+        for (; i < hasta; i++) {
+            byte b = datos.get(i);
+            if (b >= '0' && b <= '9') {
+                mantisa = mantisa * 10 + (b - '0');
+                digitos++;
+                if (decimales >= 0) {
+                    decimales++;
+                }
+            } else if (b == '.' && decimales < 0) {
+                decimales = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == hasta && digitos > 0 && digitos <= 15 && decimales < POTENCIAS.length) {
+            double valor = decimales > 0 ? mantisa / POTENCIAS[decimales] : mantisa;
+            return negativo ? -valor : valor;
+        }
+        byte[] texto = new byte[hasta - desde];
+        for (int k = 0; k < texto.length; k++) {
+            texto[k] = datos.get(desde + k);
+        }
+        return Double.parseDouble(new String(texto, StandardCharsets.UTF_8));
+    }
+}
+
+/**Carga en paralelo una lista de arcos. Cada ventana mapeada se corta en trozos que
+ * terminan en un fin de linea y cada trozo se lee con su propio CargadorAristas, que da
+ * ids locales a sus nombres y guarda sus arcos en arreglos propios. Despues los nombres
+ * se juntan en una tabla concurrente que se queda con la primera aparicion de cada uno
+ * (trozo, id local); con eso los ids globales salen en orden de aparicion en el archivo
+ * y los arcos en el orden de sus lineas, igual que con la carga secuencial.*/
+class CargaParalela {
+    private static final int MINIMO_TROZO = 1 << 20;
+
+    /**Arcos de un trozo con ids locales. Al unir, cada id local guarda su casilla en la
+     * tabla de primeras apariciones y luego su id global.*/
+    private static class Trozo {
+        private final CargadorAristas cargador;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int cantidad = 0;
+        private int[] casillas;
+        private int[] global;
+
+        Trozo(String separador, int campos) {
+            cargador = new CargadorAristas(separador, campos);
+        }
+
+        void agregar(int u, int v) {
+            if (cantidad == from.length) {
+                from = Arrays.copyOf(from, cantidad * 2);
+                to = Arrays.copyOf(to, cantidad * 2);
+            }
+            from[cantidad] = u;
+            to[cantidad] = v;
+            cantidad++;
+        }
+    }
+
+    private final List<String> nombres;
+    private final int[] from;
+    private final int[] to;
+
+    private CargaParalela(List<String> nombres, int[] from, int[] to) {
+        this.nombres = nombres;
+        this.from = from;
+        this.to = to;
+    }
+
+    //Nombres de los vertices, en la posicion de su id.
+    public List<String> getNombres() {
+        return nombres;
+    }
+
+    public int getCantidad() {
+        return from.length;
+    }
+
+    public int[] getFrom() {
+        return from;
+    }
+
+    public int[] getTo() {
+        return to;
+    }
+
+    public static CargaParalela cargar(File archivo, String separador, int campos) throws IOException {
+        List<Trozo> trozos = new ArrayList<>();
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long inicio = 0;
+            while (inicio < tamano) {
+                MappedByteBuffer datos = CargadorAristas.ventana(canal, inicio, tamano);
+                trozos.addAll(leerVentana(datos, separador, campos));
+                inicio += datos.limit();
+            }
+        }
+        return unir(trozos);
+    }
+
+    /**Corta la ventana en trozos de al menos MINIMO_TROZO bytes y los lee en paralelo.
+     * Con un solo hilo se lee entera: mas trozos solo repetirian las tablas de nombres.*/
+    private static List<Trozo> leerVentana(ByteBuffer datos, String separador, int campos) {
+        int fin = datos.limit();
+        int hilos = ForkJoinPool.getCommonPoolParallelism();
+        int cantidad = hilos == 1 ? 1 : Math.max(1, Math.min(4 * hilos, fin / MINIMO_TROZO));
+        int[] cortes = new int[cantidad + 1];
+        for (int k = 1; k < cantidad; k++) {
+            cortes[k] = CargadorAristas.finDeLinea(datos, cortes[k - 1], (int) ((long) fin * k / cantidad));
+        }
+        cortes[cantidad] = fin;
+        Trozo[] trozos = new Trozo[cantidad];
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = new Trozo(separador, campos);
+            trozo.cargador.procesar(datos.duplicate(), cortes[k], cortes[k + 1],
+                    (u, v, valor) -> trozo.agregar(u, v));
+            trozos[k] = trozo;
+        });
+        return Arrays.asList(trozos);
+    }
+
+    private static CargaParalela unir(List<Trozo> trozos) {
+        int cantidad = trozos.size();
+        long total = 0;
+        for (Trozo trozo : trozos) {
+            total += trozo.cargador.getNombres().size();
+        }
+        /**Interno concurrente: cada casilla guarda ((trozo << 32) | id local) + 1 de la
+         * primera aparicion de un nombre, o 0 si esta libre. Los hilos insertan con CAS y,
+         * si el nombre ya estaba, bajan el valor al minimo.*/
+        AtomicLongArray primera = new AtomicLongArray(Integer.highestOneBit((int) Math.max(2, 2 * total)) << 1);
+        int mascara = primera.length() - 1;
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            TablaNombres tabla = trozo.cargador.getNombres();
+            trozo.casillas = new int[tabla.size()];
+            for (int id = 0; id < tabla.size(); id++) {
+                long propio = (((long) k << 32) | id) + 1;
+                int casilla = (tabla.hash(id) ^ (tabla.hash(id) >>> 16)) & mascara;
+                while (true) {
+                    long actual = primera.get(casilla);
+                    if (actual == 0) {
+                        if (primera.compareAndSet(casilla, 0, propio)) {
+                            break;
+                        }
+                    } else if (tabla.mismoNombre(id, trozos.get((int) ((actual - 1) >>> 32)).cargador.getNombres(),
+                            (int) (actual - 1))) {
+                        while (propio < actual && !primera.compareAndSet(casilla, actual, propio)) {
+                            actual = primera.get(casilla);
+                        }
+                        break;
+                    } else {
+                        casilla = (casilla + 1) & mascara;
+                    }
+                }
+                trozo.casillas[id] = casilla;
+            }
+        });
+        //Cada trozo numera los nombres que aparecen por primera vez en el; los de un
+        //trozo empiezan donde terminan los de los trozos anteriores.
+        int[] nuevos = new int[cantidad + 1];
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            trozo.global = new int[trozo.casillas.length];
+            int propios = 0;
+            for (int id = 0; id < trozo.global.length; id++) {
+                boolean esPrimera = primera.get(trozo.casillas[id]) == (((long) k << 32) | id) + 1;
+                trozo.global[id] = esPrimera ? propios++ : -1;
+            }
+            nuevos[k + 1] = propios;
+        });
+        Arrays.parallelPrefix(nuevos, Integer::sum);
+        String[] nombres = new String[nuevos[cantidad]];
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            for (int id = 0; id < trozo.global.length; id++) {
+                if (trozo.global[id] >= 0) {
+                    trozo.global[id] += nuevos[k];
+                    nombres[trozo.global[id]] = trozo.cargador.getNombres().nombre(id);
+                }
+            }
+        });
+        //Los nombres repetidos toman el id que les dio el trozo donde aparecieron primero.
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            for (int id = 0; id < trozo.global.length; id++) {
+                if (trozo.global[id] < 0) {
+                    long donde = primera.get(trozo.casillas[id]) - 1;
+                    trozo.global[id] = trozos.get((int) (donde >>> 32)).global[(int) donde];
+                }
+            }
+        });
+        int[] base = new int[cantidad + 1];
+        for (int k = 0; k < cantidad; k++) {
+            base[k + 1] = base[k] + trozos.get(k).cantidad;
+        }
+        int[] from = new int[base[cantidad]];
+        int[] to = new int[base[cantidad]];
+        IntStream.range(0, cantidad).parallel().forEach(k -> {
+            Trozo trozo = trozos.get(k);
+            for (int i = 0; i < trozo.cantidad; i++) {
+                from[base[k] + i] = trozo.global[trozo.from[i]];
+                to[base[k] + i] = trozo.global[trozo.to[i]];
+            }
+        });
+        return new CargaParalela(Arrays.asList(nombres), from, to);
+    }
+}
+
+/**Instantanea binaria de un grafo de nombres. Se escribe una vez y se abre con
+ * FileChannel.map: el grafo se sirve directo de las paginas mapeadas, sin convertir nada
+ * al abrir, y los procesos que abren el mismo archivo comparten esas paginas en el cache
+ * del sistema. Todo va en little endian y cada seccion empieza alineada a 8 bytes:
+ *   cabecera  MAGICO, VERSION, banderas, n, m, casillas, largo de los nombres, la
+ *             secuencia de la ultima mutacion de bitacora ya incluida (0 si ninguna) y el
+ *             CRC32 del archivo entero, calculado con esos 4 bytes en cero
+ *   inicios   n + 1 ints: donde empieza cada nombre dentro de la seccion de nombres
+ *   tabla     casillas ints: hash abierto de nombre a id + 1, con 0 en las libres
+ *   salida    n + 1 offsets y m destinos
+ *   entrada   n + 1 offsets y m origenes
+ *   pesos     m doubles, solo si esta la bandera CON_PESOS
+ *   nombres   los bytes UTF-8 de todos los nombres, uno detras de otro
+ * Al abrir se revisan la suma y la forma de las secciones, asi que un archivo danado da
+ * IOException en vez de respuestas equivocadas; eso lee el archivo una vez entero.
+ * El hash de un nombre es el de TablaNombres sobre sus bytes UTF-8.*/
+class MappedGraph implements IndexedGraph<String> {
+    static final int MAGICO = 0x47524146;
+    static final int VERSION = 2;
+    static final int CON_PESOS = 1;
+    private static final int CABECERA = 64;
+    private static final int SUMA = 40;
+
+    private final int n;
+    private final int m;
+    private final int mascara;
+    private final long secuencia;
+    private final IntBuffer inicios;
+    private final IntBuffer tabla;
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+    private final ByteBuffer nombres;
+
+    private MappedGraph(FileChannel canal, int n, int m, int casillas, int banderas, long largoNombres,
+            long secuencia) throws IOException {
+        this.n = n;
+        this.m = m;
+        this.mascara = casillas - 1;
+        this.secuencia = secuencia;
+        long[] secciones = secciones(n, m, casillas, banderas, largoNombres);
+        inicios = mapear(canal, secciones[0], secciones[1]).asIntBuffer();
+        tabla = mapear(canal, secciones[1], secciones[2]).asIntBuffer();
+        outOffsets = mapear(canal, secciones[2], secciones[3]).asIntBuffer();
+        outTargets = mapear(canal, secciones[3], secciones[4]).asIntBuffer();
+        inOffsets = mapear(canal, secciones[4], secciones[5]).asIntBuffer();
+        inSources = mapear(canal, secciones[5], secciones[6]).asIntBuffer();
+        nombres = mapear(canal, secciones[7], secciones[8]);
+    }
+
+    /**Posicion de cada seccion en el archivo: inicios, tabla, offsets y destinos de
+     * salida, offsets y origenes de entrada, pesos, nombres y el fin del archivo.*/
+    private static long[] secciones(int n, int m, int casillas, int banderas, long largoNombres) {
+        long[] largos = {4L * (n + 1), 4L * casillas, 4L * (n + 1), 4L * m, 4L * (n + 1), 4L * m,
+                (banderas & CON_PESOS) != 0 ? 8L * m : 0, largoNombres};
+        long[] secciones = new long[largos.length + 1];
+        secciones[0] = CABECERA;
+        for (int i = 0; i < largos.length; i++) {
+            secciones[i + 1] = (secciones[i] + largos[i] + 7) & ~7L;
+        }
+        return secciones;
+    }
+
+    private static ByteBuffer mapear(FileChannel canal, long desde, long hasta) throws IOException {
+        if (hasta - desde > Integer.MAX_VALUE) {
+            throw new IOException("Seccion de " + (hasta - desde) + " bytes, el maximo es 2 GB");
+        }
+        return canal.map(FileChannel.MapMode.READ_ONLY, desde, hasta - desde).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    //Abre una instantanea; si no es de este formato o de esta version lanza IOException.
+    public static MappedGraph abrir(File archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() < CABECERA) {
+                throw new IOException(archivo + " no es una instantanea de grafo");
+            }
+            ByteBuffer cabecera = mapear(canal, 0, CABECERA);
+            if (cabecera.getInt(0) != MAGICO) {
+                throw new IOException(archivo + " no es una instantanea de grafo");
+            }
+            if (cabecera.getInt(4) != VERSION) {
+                throw new IOException(archivo + " es de la version " + cabecera.getInt(4)
+                        + ", se esperaba la " + VERSION);
+            }
+            int banderas = cabecera.getInt(8);
+            int n = cabecera.getInt(12);
+            int m = cabecera.getInt(16);
+            int casillas = cabecera.getInt(20);
+            long largoNombres = cabecera.getLong(24);
+            if (n < 0 || m < 0 || casillas <= n || Integer.bitCount(casillas) != 1 || largoNombres < 0
+                    || largoNombres > Integer.MAX_VALUE) {
+                throw new IOException(archivo + " tiene una cabecera invalida");
+            }
+            long fin = secciones(n, m, casillas, banderas, largoNombres)[8];
+            if (canal.size() < fin) {
+                throw new IOException(archivo + " esta incompleto");
+            }
+            if (cabecera.getInt(SUMA) != suma(canal, fin)) {
+                throw new IOException(archivo + " no coincide con su suma de verificacion");
+            }
+            MappedGraph grafo = new MappedGraph(canal, n, m, casillas, banderas, largoNombres, cabecera.getLong(32));
+            if (!grafo.esValido(largoNombres)) {
+                throw new IOException(archivo + " tiene secciones inconsistentes");
+            }
+            return grafo;
+        }
+    }
+
+    //Offsets que empiezan en 0, no bajan y llegan al total; ids y casillas dentro de rango.
+    private boolean esValido(long largoNombres) {
+        return creciente(inicios, n, largoNombres) && creciente(outOffsets, n, m) && creciente(inOffsets, n, m)
+                && enRango(outTargets, m, n) && enRango(inSources, m, n) && enRango(tabla, mascara + 1, n + 1);
+    }
+
+    private static boolean creciente(IntBuffer offsets, int n, long total) {
+        int anterior = 0;
+        for (int i = 0; i <= n; i++) {
+            if (offsets.get(i) < anterior) {
+                return false;
+            }
+            anterior = offsets.get(i);
+        }
+        return offsets.get(0) == 0 && anterior == total;
+    }
+
+    private static boolean enRango(IntBuffer valores, int cantidad, int limite) {
+        for (int i = 0; i < cantidad; i++) {
+            if (valores.get(i) < 0 || valores.get(i) >= limite) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //CRC32 de los primeros largo bytes del archivo, contando el campo de la suma como ceros.
+    private static int suma(FileChannel canal, long largo) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer cabecera = mapear(canal, 0, CABECERA);
+        crc.update(cabecera.slice(0, SUMA));
+        crc.update(new byte[4]);
+        crc.update(cabecera.slice(SUMA + 4, CABECERA - SUMA - 4));
+        for (long desde = CABECERA; desde < largo; desde += 1 << 30) {
+            crc.update(mapear(canal, desde, Math.min(largo, desde + (1 << 30))));
+        }
+        return (int) crc.getValue();
+    }
+
+    /**Escribe la instantanea de un grafo por ids. Se escribe en un archivo temporal al
+     * lado y despues se renombra, asi quien ya tenga mapeada la version anterior la sigue
+     * leyendo entera y nadie ve un archivo a medio escribir.*/
+    public static void guardar(IndexedGraph<String> graph, File archivo) throws IOException {
+        guardar(graph, archivo, 0);
+    }
+
+    //Igual que guardar, anotando que la instantanea ya incluye la bitacora hasta secuencia.
+    public static void guardar(IndexedGraph<String> graph, File archivo, long secuencia) throws IOException {
+        int n = graph.vertexCount();
+        int m = graph.edgeCount();
+        String[] nombres = new String[n];
+        int[] outOffsets = new int[n + 1];
+        int[] outTargets = new int[m];
+        int[] inOffsets = new int[n + 1];
+        int[] inSources = new int[m];
+        for (int v = 0; v < n; v++) {
+            nombres[v] = graph.vertexAt(v);
+            outOffsets[v + 1] = graph.outEnd(v);
+            inOffsets[v + 1] = graph.inEnd(v);
+        }
+        for (int i = 0; i < m; i++) {
+            outTargets[i] = graph.outTarget(i);
+            inSources[i] = graph.inSource(i);
+        }
+        escribir(archivo, nombres, outOffsets, outTargets, inOffsets, inSources, null, secuencia);
+    }
+
+    static void escribir(File archivo, String[] nombres, int[] outOffsets, int[] outTargets, int[] inOffsets,
+            int[] inSources, double[] pesos, long secuencia) throws IOException {
+        int n = nombres.length;
+        int m = outTargets.length;
+        byte[][] bytes = new byte[n][];
+        int[] inicios = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            bytes[v] = nombres[v].getBytes(StandardCharsets.UTF_8);
+            inicios[v + 1] = Math.addExact(inicios[v], bytes[v].length);
+        }
+        int casillas = Integer.highestOneBit(Math.max(1, 2 * n - 1)) << 1;
+        int[] tabla = new int[casillas];
+        for (int v = 0; v < n; v++) {
+            int casilla = casilla(hash(bytes[v]), casillas - 1);
+            while (tabla[casilla] != 0) {
+                casilla = (casilla + 1) & (casillas - 1);
+            }
+            tabla[casilla] = v + 1;
+        }
+        int banderas = pesos != null ? CON_PESOS : 0;
+        long[] secciones = secciones(n, m, casillas, banderas, inicios[n]);
+        File temporal = new File(archivo.getPath() + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bufer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            bufer.putInt(MAGICO).putInt(VERSION).putInt(banderas).putInt(n).putInt(m).putInt(casillas)
+                    .putLong(inicios[n]).putLong(secuencia);
+            int[][] enteros = {inicios, tabla, outOffsets, outTargets, inOffsets, inSources};
+            for (int s = 0; s < enteros.length; s++) {
+                rellenar(canal, bufer, secciones[s]);
+                for (int x : enteros[s]) {
+                    if (bufer.remaining() < 4) {
+                        vaciar(canal, bufer);
+                    }
+                    bufer.putInt(x);
+                }
+            }
+            rellenar(canal, bufer, secciones[6]);
+            if (pesos != null) {
+                for (double x : pesos) {
+                    if (bufer.remaining() < 8) {
+                        vaciar(canal, bufer);
+                    }
+                    bufer.putDouble(x);
+                }
+            }
+            rellenar(canal, bufer, secciones[7]);
+            for (byte[] nombre : bytes) {
+                for (int i = 0; i < nombre.length; ) {
+                    if (!bufer.hasRemaining()) {
+                        vaciar(canal, bufer);
+                    }
+                    int largo = Math.min(bufer.remaining(), nombre.length - i);
+                    bufer.put(nombre, i, largo);
+                    i += largo;
+                }
+            }
+            rellenar(canal, bufer, secciones[8]);
+            vaciar(canal, bufer);
+            //La suma se calcula sobre lo ya escrito, con el mismo codigo que la revisa al abrir.
+            ByteBuffer campo = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            campo.putInt(0, suma(canal, secciones[8]));
+            while (campo.hasRemaining()) {
+                canal.write(campo, SUMA + campo.position());
+            }
+            canal.force(true);
+        }
+        Files.move(temporal.toPath(), archivo.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Escribe ceros hasta llegar a la posicion donde empieza la siguiente seccion.
+    private static void rellenar(FileChannel canal, ByteBuffer bufer, long posicion) throws IOException {
+        while (canal.position() + bufer.position() < posicion) {
+            if (!bufer.hasRemaining()) {
+                vaciar(canal, bufer);
+            }
+            bufer.put((byte) 0);
+        }
+    }
+
+    private static void vaciar(FileChannel canal, ByteBuffer bufer) throws IOException {
+        bufer.flip();
+        while (bufer.hasRemaining()) {
+            canal.write(bufer);
+        }
+        bufer.clear();
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = 0;
+        for (byte b : bytes) {
+            h = 31 * h + b;
+        }
+        return h;
+    }
+
+    private static int casilla(int h, int mascara) {
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    //Metodos de acceso por id, leidos directo de las paginas mapeadas.
+    public int vertexCount() {
+        return n;
+    }
+
+    public int edgeCount() {
+        return m;
+    }
+
+    //Devuelve el id del vertice o -1 si no pertenece al grafo.
+    public int idOf(String vertex) {
+        byte[] bytes = vertex.getBytes(StandardCharsets.UTF_8);
+        int casilla = casilla(hash(bytes), mascara);
+        while (tabla.get(casilla) != 0) {
+            int id = tabla.get(casilla) - 1;
+            if (igual(id, bytes)) {
+                return id;
+            }
+            casilla = (casilla + 1) & mascara;
+        }
+        return -1;
+    }
+
+    private boolean igual(int id, byte[] bytes) {
+        int inicio = inicios.get(id);
+        if (inicios.get(id + 1) - inicio != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (nombres.get(inicio + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String vertexAt(int id) {
+        byte[] bytes = new byte[inicios.get(id + 1) - inicios.get(id)];
+        nombres.get(inicios.get(id), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int outStart(int v) {
+        return outOffsets.get(v);
+    }
+
+    public int outEnd(int v) {
+        return outOffsets.get(v + 1);
+    }
+
+    public int outTarget(int i) {
+        return outTargets.get(i);
+    }
+
+    public int inStart(int v) {
+        return inOffsets.get(v);
+    }
+
+    public int inEnd(int v) {
+        return inOffsets.get(v + 1);
+    }
+
+    public int inSource(int i) {
+        return inSources.get(i);
+    }
+
+    //La instantanea es de solo lectura: las operaciones que la modifican no estan soportadas.
+    public boolean add(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean connect(String from, String to) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean disconnect(String from, String to) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    public boolean remove(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph es de solo lectura");
+    }
+
+    //Metodo Contains
+    public boolean contains(String vertex) {
+        return idOf(vertex) >= 0;
+    }
+
+    //Vista de solo lectura sobre una fila; cada get decodifica el nombre de las paginas.
+    private List<String> vista(IntBuffer datos, int inicio, int fin) {
+        return new AbstractList<String>() {
+            public String get(int i) {
+                return vertexAt(datos.get(inicio + i));
+            }
+
+            public int size() {
+                return fin - inicio;
+            }
+        };
+    }
+
+    //Metodo GetInwardEdges
+    public List<String> getInwardEdges(String to) {
+        int v = idOf(to);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(inSources, inStart(v), inEnd(v));
+    }
+
+    //Metodo GetOutwardEdges
+    public List<String> getOutwardEdges(String from) {
+        int v = idOf(from);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return vista(outTargets, outStart(v), outEnd(v));
+    }
+
+    //Metodo GetVerticesConnectedTo
+    public List<String> getVerticesConnectedTo(String vertex) {
+        if (contains(vertex)) {
+            Set<String> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
+            adjacentVertex.addAll(getInwardEdges(vertex));
+            return new ArrayList<>(adjacentVertex);
+        }
+        return new ArrayList<>();
+    }
+
+    //Metodo GetAllVertices
+    public List<String> getAllVertices() {
+        List<String> todos = new ArrayList<>(n);
+        for (int v = 0; v < n; v++) {
+            todos.add(vertexAt(v));
+        }
+        return todos;
+    }
+
+    //Metodo Size
+    public int size() {
+        return n;
+    }
+
+    //Metodo Subgraph: el subgrafo se arma en memoria como un CSRGraph.
+    public Graph<String> subgraph(Collection<String> vertices) {
+        CSRGraph.Builder<String> builder = new CSRGraph.Builder<>();
+        for (String vertex : vertices) {
+            if (contains(vertex)) {
+                builder.add(vertex);
+            }
+        }
+        for (String vertex : vertices) {
+            int v = idOf(vertex);
+            if (v < 0) {
+                continue;
+            }
+            for (int i = outStart(v); i < outEnd(v); i++) {
+                String sucesor = vertexAt(outTarget(i));
+                if (vertices.contains(sucesor)) {
+                    builder.connect(vertex, sucesor);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
+
+/**Componentes fuertemente conexas de un CSRGraph con el algoritmo de Tarjan, en una
+ * sola pasada O(V+E) y con una pila explicita en lugar de recursion, asi una ciudad
+ * grande no desborda la pila de la JVM. No modifica el grafo. componente[v] es el numero
+ * de componente del vertice v, entre 0 y cantidad-1, y tamano[c] cuantos vertices tiene
+ * la componente c.*/
+class ComponentesFuertes {
+    private int[] componente;
+    private int[] tamano;
+    private int cantidad;
+
+    private ComponentesFuertes(int[] componente, int[] tamano, int cantidad) {
+        this.componente = componente;
+        this.tamano = tamano;
+        this.cantidad = cantidad;
+    }
+
+    public int getComponente(int v) {
+        return componente[v];
+    }
+
+    public int getTamano(int c) {
+        return tamano[c];
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public static ComponentesFuertes de(IndexedGraph<?> graph) {
+        int n = graph.vertexCount();
+        int[] indice = new int[n];
+        int[] bajo = new int[n];
+        int[] componente = new int[n];
+        int[] tamano = new int[n];
+        Arrays.fill(indice, -1);
+        Arrays.fill(componente, -1);
+        //Pila de la llamada: vertice y siguiente arco por revisar.
+        int[] llamada = new int[n];
+        int[] siguienteArco = new int[n];
+        //Pila de Tarjan con los vertices que aun no tienen componente.
+        int[] pila = new int[n];
+        int tope = 0;
+        int contador = 0;
+        int cantidad = 0;
+        for (int raiz = 0; raiz < n; raiz++) {
+            if (indice[raiz] != -1) {
+                continue;
+            }
+            int profundidad = 0;
+            llamada[0] = raiz;
+            siguienteArco[0] = graph.outStart(raiz);
+            indice[raiz] = contador;
+            bajo[raiz] = contador;
+            contador++;
+            pila[tope++] = raiz;
+            while (profundidad >= 0) {
+                int v = llamada[profundidad];
+                if (siguienteArco[profundidad] < graph.outEnd(v)) {
+                    int w = graph.outTarget(siguienteArco[profundidad]++);
+                    if (indice[w] == -1) {
+                        indice[w] = contador;
+                        bajo[w] = contador;
+                        contador++;
+                        pila[tope++] = w;
+                        profundidad++;
+                        llamada[profundidad] = w;
+                        siguienteArco[profundidad] = graph.outStart(w);
+                    } else if (componente[w] == -1) {
+                        bajo[v] = Math.min(bajo[v], indice[w]);
+                    }
+                } else {
+                    //Terminamos v: si es raiz de su componente la sacamos de la pila.
+                    if (bajo[v] == indice[v]) {
+                        int w;
+                        do {
+                            w = pila[--tope];
+                            componente[w] = cantidad;
+                            tamano[cantidad]++;
+                        } while (w != v);
+                        cantidad++;
+                    }
+                    profundidad--;
+                    if (profundidad >= 0) {
+                        int padre = llamada[profundidad];
+                        bajo[padre] = Math.min(bajo[padre], bajo[v]);
+                    }
+                }
+            }
+        }
+        return new ComponentesFuertes(componente, Arrays.copyOf(tamano, cantidad), cantidad);
+    }
+
+    //Arma el resultado a partir de un numero de componente por vertice, entre 0 y cantidad-1.
+    public static ComponentesFuertes deEtiquetas(int[] componente, int cantidad) {
+        int[] tamano = new int[cantidad];
+        for (int c : componente) {
+            tamano[c]++;
+        }
+        return new ComponentesFuertes(componente, tamano, cantidad);
+    }
+}
+
+/**Componentes fuertes en paralelo con el metodo forward-backward sobre el ForkJoinPool
+ * comun. Cada subproblema es un conjunto de vertices con la misma etiqueta en un arreglo
+ * atomico; el grafo es un CSRGraph inmutable que todos los hilos leen a la vez.
+ * - Recorte: los vertices sin arcos de entrada o de salida dentro del subproblema son
+ *   componentes de un solo vertice y se sacan en paralelo, unas pocas rondas.
+ * - Desde un pivote se marca lo alcanzable hacia adelante (F) y hacia atras (B), nivel
+ *   por nivel y en paralelo, cambiando etiquetas con compareAndSet. F y B juntos son la
+ *   componente del pivote.
+ * - F sin B, B sin F y el resto no comparten componentes entre si, asi que se resuelven
+ *   como tres tareas ForkJoin independientes.
+ * Los subproblemas chicos se resuelven con el mismo metodo pero sin paralelismo.*/
+class ComponentesParalelas {
+    private static final int UMBRAL = 1 << 12;
+    private static final int RONDAS_RECORTE = 3;
+    private static final int BLOQUE = 1 << 10;
+    private static final int TERMINADO = -1;
+
+    private final IndexedGraph<?> graph;
+    private final AtomicIntegerArray etiqueta;
+    private final int[] componente;
+    private final AtomicInteger siguienteEtiqueta = new AtomicInteger(1);
+    private final AtomicInteger siguienteComponente = new AtomicInteger();
+
+    private ComponentesParalelas(IndexedGraph<?> graph) {
+        this.graph = graph;
+        this.etiqueta = new AtomicIntegerArray(graph.vertexCount());
+        this.componente = new int[graph.vertexCount()];
+    }
+
+    public static ComponentesFuertes de(IndexedGraph<?> graph) {
+        ComponentesParalelas calculo = new ComponentesParalelas(graph);
+        int[] todos = IntStream.range(0, graph.vertexCount()).toArray();
+        ForkJoinPool.commonPool().invoke(calculo.new Subproblema(todos, 0));
+        return ComponentesFuertes.deEtiquetas(calculo.componente, calculo.siguienteComponente.get());
+    }
+
+    private class Subproblema extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private int[] vertices;
+        private final int propia;
+
+        private Subproblema(int[] vertices, int propia) {
+            this.vertices = vertices;
+            this.propia = propia;
+        }
+
+        protected void compute() {
+            boolean paralelo = vertices.length >= UMBRAL;
+            recortar(paralelo);
+            if (vertices.length == 0) {
+                return;
+            }
+            //Pivote al azar: con una cadena larga, partirla por el medio evita recursion lineal.
+            int pivote = vertices[ThreadLocalRandom.current().nextInt(vertices.length)];
+            int adelante = siguienteEtiqueta.getAndIncrement();
+            int atras = siguienteEtiqueta.getAndIncrement();
+            int ambas = siguienteEtiqueta.getAndIncrement();
+            etiqueta.set(pivote, adelante);
+            alcanzar(new int[] {pivote}, false, propia, adelante, -1, -1, paralelo);
+            etiqueta.set(pivote, ambas);
+            alcanzar(new int[] {pivote}, true, propia, atras, adelante, ambas, paralelo);
+            int c = siguienteComponente.getAndIncrement();
+            for (int v : filtrar(ambas, paralelo)) {
+                componente[v] = c;
+                etiqueta.set(v, TERMINADO);
+            }
+            invokeAll(new Subproblema(filtrar(adelante, paralelo), adelante),
+                    new Subproblema(filtrar(atras, paralelo), atras),
+                    new Subproblema(filtrar(propia, paralelo), propia));
+        }
+
+        //Vertices del subproblema que tienen la etiqueta indicada.
+        private int[] filtrar(int buscada, boolean paralelo) {
+            IntStream flujo = IntStream.of(vertices);
+            if (paralelo) {
+                flujo = flujo.parallel();
+            }
+            return flujo.filter(v -> etiqueta.get(v) == buscada).toArray();
+        }
+
+        /**Unas pocas rondas de recorte: cada vertice sin entrada o sin salida dentro del
+         * subproblema es una componente propia. No se sigue hasta el final para no hacer
+         * una ronda por cada vertice de una cadena larga; lo que queda lo parte el pivote.*/
+        private void recortar(boolean paralelo) {
+            for (int ronda = 0; ronda < RONDAS_RECORTE && vertices.length > 0; ronda++) {
+                IntStream flujo = IntStream.of(vertices);
+                if (paralelo) {
+                    flujo = flujo.parallel();
+                }
+                int[] sueltos = flujo.filter(v -> !tieneVecino(v, false) || !tieneVecino(v, true)).toArray();
+                if (sueltos.length == 0) {
+                    return;
+                }
+                int primera = siguienteComponente.getAndAdd(sueltos.length);
+                for (int k = 0; k < sueltos.length; k++) {
+                    componente[sueltos[k]] = primera + k;
+                    etiqueta.set(sueltos[k], TERMINADO);
+                }
+                vertices = filtrar(propia, paralelo);
+            }
+        }
+
+        private boolean tieneVecino(int v, boolean haciaAtras) {
+            int inicio = haciaAtras ? graph.inStart(v) : graph.outStart(v);
+            int fin = haciaAtras ? graph.inEnd(v) : graph.outEnd(v);
+            for (int i = inicio; i < fin; i++) {
+                int w = haciaAtras ? graph.inSource(i) : graph.outTarget(i);
+                if (w != v && etiqueta.get(w) == propia) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**BFS por niveles desde la frontera que cambia la etiqueta desde a hacia, y ademas
+         * desdeOtra a haciaOtra (si desdeOtra no es -1). Cada vertice lo reclama un solo
+         * hilo gracias a compareAndSet. En paralelo cada nivel se reparte en bloques de la
+         * frontera y los pedazos del nivel siguiente se juntan al final.*/
+        private void alcanzar(int[] frontera, boolean haciaAtras, int desde, int hacia, int desdeOtra,
+                int haciaOtra, boolean paralelo) {
+            while (frontera.length > 0) {
+                int[] nivel = frontera;
+                if (!paralelo || nivel.length <= BLOQUE) {
+                    frontera = expandir(nivel, 0, nivel.length, haciaAtras, desde, hacia, desdeOtra, haciaOtra);
+                    continue;
+                }
+                int[][] partes = IntStream.range(0, (nivel.length + BLOQUE - 1) / BLOQUE).parallel()
+                        .mapToObj(k -> expandir(nivel, k * BLOQUE, Math.min(nivel.length, (k + 1) * BLOQUE),
+                                haciaAtras, desde, hacia, desdeOtra, haciaOtra))
+                        .toArray(int[][]::new);
+                int largo = 0;
+                for (int[] parte : partes) {
+                    largo += parte.length;
+                }
+                frontera = new int[largo];
+                largo = 0;
+                for (int[] parte : partes) {
+                    System.arraycopy(parte, 0, frontera, largo, parte.length);
+                    largo += parte.length;
+                }
+            }
+        }
+
+        //Vecinos reclamados desde frontera[inicio..fin), que forman parte del nivel siguiente.
+        private int[] expandir(int[] frontera, int inicio, int fin, boolean haciaAtras, int desde, int hacia,
+                int desdeOtra, int haciaOtra) {
+            int[] siguiente = new int[16];
+            int cantidad = 0;
+            for (int k = inicio; k < fin; k++) {
+                int v = frontera[k];
+                int hasta = haciaAtras ? graph.inEnd(v) : graph.outEnd(v);
+                for (int i = haciaAtras ? graph.inStart(v) : graph.outStart(v); i < hasta; i++) {
+                    int w = haciaAtras ? graph.inSource(i) : graph.outTarget(i);
+                    if (etiqueta.compareAndSet(w, desde, hacia)
+                            || (desdeOtra != -1 && etiqueta.compareAndSet(w, desdeOtra, haciaOtra))) {
+                        if (cantidad == siguiente.length) {
+                            siguiente = Arrays.copyOf(siguiente, cantidad * 2);
+                        }
+                        siguiente[cantidad++] = w;
+                    }
+                }
+            }
+            return Arrays.copyOf(siguiente, cantidad);
+        }
+    }
+}
+
+/**Estado de un recorrido de compConex guardado aparte del grafo, en arreglos indexados
+ * por el id del vertice: color (BLANCO, GRIS o NEGRO), predecesor en el bosque de zonas
+ * y tiempo de finalizacion. Como el grafo no se toca, varias corridas pueden usar el
+ * mismo CSRGraph a la vez, cada una con su propio EstadoRecorrido. Los dos DFS usan
+ * pilas explicitas.*/
+class EstadoRecorrido {
+    public static final byte BLANCO = 0;
+    public static final byte GRIS = 1;
+    public static final byte NEGRO = 2;
+
+    private final byte[] color;
+    private final int[] predecesor;
+    private final int[] tiempo;
+    //Pila de la llamada: vertice y siguiente arco por revisar.
+    private final int[] llamada;
+    private final int[] siguienteArco;
+
+    public EstadoRecorrido(int n) {
+        color = new byte[n];
+        predecesor = new int[n];
+        tiempo = new int[n];
+        llamada = new int[n];
+        siguienteArco = new int[n];
+        //Como en Comercio, cada vertice empieza siendo su propio predecesor.
+        for (int v = 0; v < n; v++) {
+            predecesor[v] = v;
+        }
+    }
+
+    public byte getColor(int v) {
+        return color[v];
+    }
+
+    public int getPredecesor(int v) {
+        return predecesor[v];
+    }
+
+    public int getTiempo(int v) {
+        return tiempo[v];
+    }
+
+    //Primera pasada (dfsVisita): DFS por sucesores que deja a todos en NEGRO con su tiempo.
+    public void dfsVisita(IndexedGraph<?> graph) {
+        int time = 0;
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            if (color[v] == BLANCO) {
+                time = dfs(graph, v, time, false, BLANCO, NEGRO);
+            }
+        }
+    }
+
+    /**Segunda pasada (evilDFSVisita): DFS por predecesores, es decir sobre la transpuesta
+     * sin construirla, empezando por los tiempos de finalizacion mas altos. Cada arbol es
+     * una zona; devuelve cuantos vertices tiene cada una. Los tiempos son 1..2n y todos
+     * distintos, asi que el orden sale de un arreglo indexado por tiempo.*/
+    public int[] zonas(IndexedGraph<?> graph) {
+        int n = graph.vertexCount();
+        int[] porTiempo = new int[2 * n + 1];
+        Arrays.fill(porTiempo, -1);
+        for (int v = 0; v < n; v++) {
+            porTiempo[tiempo[v]] = v;
+        }
+        int[] tamanos = new int[n];
+        int cantidad = 0;
+        int time = 0;
+        for (int t = 2 * n; t > 0; t--) {
+            int v = porTiempo[t];
+            if (v != -1 && color[v] == NEGRO) {
+                int antes = time;
+                time = dfs(graph, v, time, true, NEGRO, BLANCO);
+                //Cada vertice del arbol suma dos al tiempo: al entrar y al salir.
+                tamanos[cantidad++] = (time - antes) / 2;
+            }
+        }
+        return Arrays.copyOf(tamanos, cantidad);
+    }
+
+    /**DFS desde raiz sobre los vertices de color libre, que quedan GRIS mientras estan en
+     * la pila y del color terminado al salir. Por la transpuesta tambien anota el
+     * predecesor. Devuelve el tiempo al terminar.*/
+    private int dfs(IndexedGraph<?> graph, int raiz, int time, boolean transpuesta, byte libre, byte terminado) {
+        int profundidad = 0;
+        llamada[0] = raiz;
+        siguienteArco[0] = transpuesta ? graph.inStart(raiz) : graph.outStart(raiz);
+        color[raiz] = GRIS;
+        time++;
+        while (profundidad >= 0) {
+            int v = llamada[profundidad];
+            int fin = transpuesta ? graph.inEnd(v) : graph.outEnd(v);
+            if (siguienteArco[profundidad] < fin) {
+                int i = siguienteArco[profundidad]++;
+                int w = transpuesta ? graph.inSource(i) : graph.outTarget(i);
+                if (color[w] == libre) {
+                    if (transpuesta) {
+                        predecesor[w] = v;
+                    }
+                    color[w] = GRIS;
+                    time++;
+                    profundidad++;
+                    llamada[profundidad] = w;
+                    siguienteArco[profundidad] = transpuesta ? graph.inStart(w) : graph.outStart(w);
+                }
+            } else {
+                color[v] = terminado;
+                time++;
+                tiempo[v] = time;
+                profundidad--;
+            }
+        }
+        return time;
+    }
+}
+
+/**Conjuntos disjuntos sobre ids enteros con compresion de caminos y union por tamano.
+ * Cada conjunto es una zona de reparto: se guarda su tamano en la raiz y el total de
+ * repartidores (costoZona de cada zona) se actualiza en cada union, asi consultarlo es
+ * O(1). Se pueden agregar comercios y unir zonas a medida que llegan enlaces nuevos.*/
+class ConjuntosDisjuntos {
+    private int[] padre;
+    private int[] tamano;
+    private int cantidad;
+    private int conjuntos;
+    private int total;
+
+    public ConjuntosDisjuntos(int n) {
+        padre = new int[Math.max(n, 16)];
+        tamano = new int[padre.length];
+        for (int v = 0; v < n; v++) {
+            padre[v] = v;
+            tamano[v] = 1;
+        }
+        cantidad = n;
+        conjuntos = n;
+        total = n * NextToYou.costoZona(1);
+    }
+
+    /**Arma las zonas a partir del bosque de predecesores de la segunda pasada de
+     * compConex: cada vertice se une con su predecesor, en una sola pasada casi lineal.*/
+    public static ConjuntosDisjuntos deZonas(EstadoRecorrido estado, int n) {
+        ConjuntosDisjuntos zonas = new ConjuntosDisjuntos(n);
+        for (int v = 0; v < n; v++) {
+            zonas.unir(v, estado.getPredecesor(v));
+        }
+        return zonas;
+    }
+
+    //Agrega un comercio nuevo como zona propia y devuelve su id.
+    public int agregar() {
+        if (cantidad == padre.length) {
+            padre = Arrays.copyOf(padre, cantidad * 2);
+            tamano = Arrays.copyOf(tamano, cantidad * 2);
+        }
+        padre[cantidad] = cantidad;
+        tamano[cantidad] = 1;
+        conjuntos++;
+        total = total + NextToYou.costoZona(1);
+        return cantidad++;
+    }
+
+    //Raiz de la zona de v, acortando el camino a la mitad mientras sube.
+    public int buscar(int v) {
+        while (padre[v] != v) {
+            padre[v] = padre[padre[v]];
+            v = padre[v];
+        }
+        return v;
+    }
+
+    //Une las zonas de a y b; devuelve false si ya eran la misma.
+    public boolean unir(int a, int b) {
+        int ra = buscar(a);
+        int rb = buscar(b);
+        if (ra == rb) {
+            return false;
+        }
+        if (tamano[ra] < tamano[rb]) {
+            int x = ra;
+            ra = rb;
+            rb = x;
+        }
+        total = total - NextToYou.costoZona(tamano[ra]) - NextToYou.costoZona(tamano[rb]);
+        padre[rb] = ra;
+        tamano[ra] += tamano[rb];
+        total = total + NextToYou.costoZona(tamano[ra]);
+        conjuntos--;
+        return true;
+    }
+
+    public int getTamano(int v) {
+        return tamano[buscar(v)];
+    }
+
+    public int size() {
+        return cantidad;
+    }
+
+    public int getConjuntos() {
+        return conjuntos;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+}
+
+/**Zonas de reparto que se mantienen al dia mientras se agregan comercios y caminos, sin
+ * volver a correr compConex. Las componentes fuertes se guardan en un orden topologico
+ * (posiciones long con huecos, en un TreeMap) y se usa el algoritmo de Pearce-Kelly:
+ * un camino nuevo u-v que va contra el orden solo obliga a mirar las componentes entre
+ * la de v y la de u. Desde v se buscan hacia adelante las que no pasan de la posicion de
+ * u, y desde u hacia atras las que no bajan de la de v. Las que estan en ambas forman un
+ * ciclo con el camino nuevo y se funden; las demas se reacomodan en las mismas
+ * posiciones. Al quitar un camino dentro de una zona solo se recalcula esa zona con
+ * Tarjan. El total de repartidores se actualiza con cada cambio.*/
+class ZonasDinamicas {
+    private static final long HUECO = 1L << 32;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> nombres = new ArrayList<>();
+    private final Graph<Integer> grafo = new AdjacencyListGraph<>();
+    private int[] componente = new int[16];
+    //Por componente: sus vertices y su posicion en el orden topologico.
+    private final List<List<Integer>> miembros = new ArrayList<>();
+    private long[] orden = new long[16];
+    private final TreeMap<Long, Integer> porOrden = new TreeMap<>();
+    //Ids de componentes que quedaron vacias al fundirse y se pueden reutilizar.
+    private final List<Integer> libres = new ArrayList<>();
+    private int zonas;
+    private int total;
+
+    //Arma el estado inicial con Tarjan, que entrega las componentes en orden topologico inverso.
+    public static ZonasDinamicas de(IndexedGraph<String> graph) {
+        ZonasDinamicas dinamicas = new ZonasDinamicas();
+        ComponentesFuertes componentes = ComponentesFuertes.de(graph);
+        int cantidad = componentes.getCantidad();
+        int[] idComponente = new int[cantidad];
+        for (int c = 0; c < cantidad; c++) {
+            idComponente[c] = dinamicas.nuevaComponente((cantidad - c) * HUECO);
+        }
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            dinamicas.agregarVertice(graph.vertexAt(v), idComponente[componentes.getComponente(v)]);
+        }
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int i = graph.outStart(v); i < graph.outEnd(v); i++) {
+                dinamicas.grafo.connect(v, graph.outTarget(i));
+            }
+        }
+        return dinamicas;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getZonas() {
+        return zonas;
+    }
+
+    //Cantidad de comercios en la zona del comercio indicado, o 0 si no existe.
+    public int getTamano(String comercio) {
+        Integer v = ids.get(comercio);
+        if (v == null) {
+            return 0;
+        }
+        return miembros.get(componente[v]).size();
+    }
+
+    public boolean mismaZona(String a, String b) {
+        Integer u = ids.get(a);
+        Integer v = ids.get(b);
+        return u != null && v != null && componente[u] == componente[v];
+    }
+
+    //Agrega un comercio sin caminos: es una zona nueva al final del orden.
+    public boolean agregarComercio(String nombre) {
+        if (ids.containsKey(nombre)) {
+            return false;
+        }
+        long posicion = porOrden.isEmpty() ? HUECO : porOrden.lastKey() + HUECO;
+        agregarVertice(nombre, nuevaComponente(posicion));
+        return true;
+    }
+
+    /**Agrega el camino from-to (y los comercios si hacen falta). Devuelve false si el
+     * camino ya existia.*/
+    public boolean conectar(String from, String to) {
+        agregarComercio(from);
+        agregarComercio(to);
+        int u = ids.get(from);
+        int v = ids.get(to);
+        if (!grafo.connect(u, v)) {
+            return false;
+        }
+        int cu = componente[u];
+        int cv = componente[v];
+        if (cu == cv || orden[cu] < orden[cv]) {
+            return true;
+        }
+        Set<Integer> adelante = alcanzadas(v, orden[cu], true);
+        Set<Integer> atras = alcanzadas(u, orden[cv], false);
+        reordenar(atras, adelante);
+        return true;
+    }
+
+    /**Quita el camino from-to. Si unia dos zonas distintas el orden sigue valido; si
+     * estaba dentro de una zona, solo esa zona se recalcula. Devuelve false si el camino
+     * no existia.*/
+    public boolean desconectar(String from, String to) {
+        Integer u = ids.get(from);
+        Integer v = ids.get(to);
+        if (u == null || v == null || !grafo.disconnect(u, v)) {
+            return false;
+        }
+        if (componente[u] == componente[v]) {
+            dividir(componente[u]);
+        }
+        return true;
+    }
+
+    private int nuevaComponente(long posicion) {
+        int c;
+        if (libres.isEmpty()) {
+            c = miembros.size();
+            miembros.add(new ArrayList<>());
+            if (c == orden.length) {
+                orden = Arrays.copyOf(orden, c * 2);
+            }
+        } else {
+            c = libres.remove(libres.size() - 1);
+        }
+        orden[c] = posicion;
+        porOrden.put(posicion, c);
+        zonas++;
+        return c;
+    }
+
+    private void agregarVertice(String nombre, int c) {
+        int v = nombres.size();
+        nombres.add(nombre);
+        ids.put(nombre, v);
+        grafo.add(v);
+        if (v == componente.length) {
+            componente = Arrays.copyOf(componente, v * 2);
+        }
+        quitarCosto(c);
+        componente[v] = c;
+        miembros.get(c).add(v);
+        sumarCosto(c);
+    }
+
+    private void quitarCosto(int c) {
+        if (!miembros.get(c).isEmpty()) {
+            total = total - NextToYou.costoZona(miembros.get(c).size());
+        }
+    }
+
+    private void sumarCosto(int c) {
+        if (!miembros.get(c).isEmpty()) {
+            total = total + NextToYou.costoZona(miembros.get(c).size());
+        }
+    }
+
+    /**Componentes alcanzables desde inicio (hacia adelante por sucesores, si no por
+     * predecesores) sin salir del rango de posiciones: hacia adelante hasta limite,
+     * hacia atras desde limite.*/
+    private Set<Integer> alcanzadas(int inicio, long limite, boolean haciaAdelante) {
+        Set<Integer> componentes = new HashSet<>();
+        Set<Integer> vistos = new HashSet<>();
+        List<Integer> pila = new ArrayList<>();
+        pila.add(inicio);
+        vistos.add(inicio);
+        while (!pila.isEmpty()) {
+            int x = pila.remove(pila.size() - 1);
+            componentes.add(componente[x]);
+            List<Integer> vecinos = haciaAdelante ? grafo.getOutwardEdges(x) : grafo.getInwardEdges(x);
+            for (int w : vecinos) {
+                long posicion = orden[componente[w]];
+                boolean enRango = haciaAdelante ? posicion <= limite : posicion >= limite;
+                if (enRango && vistos.add(w)) {
+                    pila.add(w);
+                }
+            }
+        }
+        return componentes;
+    }
+
+    /**Reacomoda las componentes afectadas en las posiciones que ya ocupaban: primero las
+     * de atras, luego la zona fundida (si el camino cerro un ciclo) y al final las de
+     * adelante, cada grupo en su orden anterior.*/
+    private void reordenar(Set<Integer> atras, Set<Integer> adelante) {
+        Set<Integer> afectadas = new HashSet<>(atras);
+        afectadas.addAll(adelante);
+        List<Long> posiciones = new ArrayList<>();
+        for (int c : afectadas) {
+            posiciones.add(orden[c]);
+            porOrden.remove(orden[c]);
+        }
+        posiciones.sort(null);
+        List<Integer> ciclo = new ArrayList<>();
+        List<Integer> soloAtras = new ArrayList<>();
+        List<Integer> soloAdelante = new ArrayList<>();
+        for (int c : afectadas) {
+            if (atras.contains(c) && adelante.contains(c)) {
+                ciclo.add(c);
+            } else if (atras.contains(c)) {
+                soloAtras.add(c);
+            } else {
+                soloAdelante.add(c);
+            }
+        }
+        soloAtras.sort((a, b) -> Long.compare(orden[a], orden[b]));
+        soloAdelante.sort((a, b) -> Long.compare(orden[a], orden[b]));
+        for (int i = 0; i < soloAtras.size(); i++) {
+            ubicar(soloAtras.get(i), posiciones.get(i));
+        }
+        if (!ciclo.isEmpty()) {
+            ubicar(fundir(ciclo), posiciones.get(soloAtras.size()));
+        }
+        int desde = posiciones.size() - soloAdelante.size();
+        for (int j = 0; j < soloAdelante.size(); j++) {
+            ubicar(soloAdelante.get(j), posiciones.get(desde + j));
+        }
+    }
+
+    private void ubicar(int c, long posicion) {
+        orden[c] = posicion;
+        porOrden.put(posicion, c);
+    }
+
+    //Funde las componentes en la mas grande, asi cada vertice se mueve pocas veces.
+    private int fundir(List<Integer> componentes) {
+        int mayor = componentes.get(0);
+        for (int c : componentes) {
+            quitarCosto(c);
+            if (miembros.get(c).size() > miembros.get(mayor).size()) {
+                mayor = c;
+            }
+        }
+        for (int c : componentes) {
+            if (c != mayor) {
+                for (int x : miembros.get(c)) {
+                    componente[x] = mayor;
+                }
+                miembros.get(mayor).addAll(miembros.get(c));
+                miembros.get(c).clear();
+                libres.add(c);
+                zonas--;
+            }
+        }
+        sumarCosto(mayor);
+        return mayor;
+    }
+
+    /**Recalcula con Tarjan solo la zona c, sobre el subgrafo de sus comercios. Si se
+     * parte, las partes ocupan posiciones seguidas desde la de c, en orden topologico.*/
+    private void dividir(int c) {
+        CSRGraph.Builder<Integer> builder = new CSRGraph.Builder<>();
+        for (int x : miembros.get(c)) {
+            builder.add(x);
+        }
+        for (int x : miembros.get(c)) {
+            for (int y : grafo.getOutwardEdges(x)) {
+                if (componente[y] == c) {
+                    builder.connect(x, y);
+                }
+            }
+        }
+        CSRGraph<Integer> zona = builder.build();
+        ComponentesFuertes partes = ComponentesFuertes.de(zona);
+        int k = partes.getCantidad();
+        if (k == 1) {
+            return;
+        }
+        Long siguiente = porOrden.higherKey(orden[c]);
+        if (siguiente != null && siguiente - orden[c] < k) {
+            renumerar();
+            siguiente = porOrden.higherKey(orden[c]);
+        }
+        long paso = siguiente == null ? HUECO : (siguiente - orden[c]) / k;
+        quitarCosto(c);
+        miembros.get(c).clear();
+        //Tarjan numera primero las partes sin salida: la ultima parte conserva c y su posicion.
+        int[] idParte = new int[k];
+        idParte[k - 1] = c;
+        for (int p = 0; p < k - 1; p++) {
+            idParte[p] = nuevaComponente(orden[c] + (k - 1 - p) * paso);
+        }
+        for (int i = 0; i < zona.vertexCount(); i++) {
+            int x = zona.vertexAt(i);
+            int parte = idParte[partes.getComponente(i)];
+            componente[x] = parte;
+            miembros.get(parte).add(x);
+        }
+        for (int p = 0; p < k; p++) {
+            sumarCosto(idParte[p]);
+        }
+    }
+
+    //Vuelve a espaciar todas las posiciones cuando ya no queda hueco para una division.
+    private void renumerar() {
+        List<Integer> enOrden = new ArrayList<>(porOrden.values());
+        porOrden.clear();
+        for (int i = 0; i < enOrden.size(); i++) {
+            ubicar(enOrden.get(i), (i + 1) * HUECO);
+        }
+    }
+}
+
+/**Recibe cada mutacion leida de una bitacora al reproducirla. b es null en las
+ * mutaciones de un solo vertice.*/
+interface ConsumidorMutacion {
+    void aplicar(byte tipo, String a, String b);
+}
+
+/**Bitacora de mutaciones de un grafo (write-ahead log): un archivo al que solo se le
+ * agregan registros. Cada registro es su largo, su CRC32 y los datos: secuencia, tipo y
+ * uno o dos nombres en UTF-8. Quien muta el grafo solo arma el registro y lo deja en una
+ * cola; un hilo escritor junta todo lo que haya en la cola, lo escribe de una vez y hace
+ * un solo force() por tanda (group commit), asi ninguna mutacion espera un fsync. Quien
+ * necesite saber que sus cambios ya estan en disco llama a sincronizar().
+ * Al abrir se reproducen los registros con secuencia mayor que la de la instantanea y se
+ * corta lo que haya despues del ultimo registro completo con CRC correcto, que es lo que
+ * deja una caida a mitad de una escritura. registrar() es para un solo hilo.*/
+class BitacoraMutaciones {
+    static final byte AGREGAR = 1;
+    static final byte CONECTAR = 2;
+    static final byte DESCONECTAR = 3;
+    static final byte QUITAR = 4;
+    private static final int MAGICO = 0x42495441;
+    private static final int VERSION = 1;
+    private static final int CABECERA = 8;
+    private static final int TANDA = 1 << 16;
+
+    //Un registro ya codificado, o una compactacion si congelado no es null.
+    private static class Pendiente {
+        private final long secuencia;
+        private final byte[] registro;
+        private final Supplier<? extends IndexedGraph<String>> congelado;
+        private final File instantanea;
+
+        Pendiente(long secuencia, byte[] registro, Supplier<? extends IndexedGraph<String>> congelado,
+                File instantanea) {
+            this.secuencia = secuencia;
+            this.registro = registro;
+            this.congelado = congelado;
+            this.instantanea = instantanea;
+        }
+    }
+
+    private static final Pendiente FIN = new Pendiente(-1, null, null, null);
+
+    private final FileChannel canal;
+    private final LinkedBlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+    private final Thread escritor;
+    private long siguiente;
+    //Ultima secuencia que ya esta en disco; se protege con el monitor de la bitacora.
+    private long durable;
+    private volatile Exception error;
+
+    private BitacoraMutaciones(FileChannel canal, long siguiente) {
+        this.canal = canal;
+        this.siguiente = siguiente;
+        this.durable = siguiente - 1;
+        escritor = new Thread(this::escribir, "bitacora");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**Abre (o crea) la bitacora, le pasa a destino las mutaciones con secuencia mayor que
+     * desde y la deja lista para seguir agregando al final.*/
+    public static BitacoraMutaciones abrir(File archivo, long desde, ConsumidorMutacion destino) throws IOException {
+        FileChannel canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long ultima;
+        try {
+            if (canal.size() < CABECERA) {
+                canal.truncate(0);
+                ByteBuffer cabecera = ByteBuffer.allocate(CABECERA).putInt(MAGICO).putInt(VERSION);
+                cabecera.flip();
+                while (cabecera.hasRemaining()) {
+                    canal.write(cabecera, cabecera.position());
+                }
+                canal.force(true);
+                ultima = desde;
+            } else {
+                ultima = reproducir(canal, archivo, desde, destino);
+            }
+            canal.position(canal.size());
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+        return new BitacoraMutaciones(canal, ultima + 1);
+    }
+
+    //Reproduce los registros validos, corta la cola rota y devuelve la ultima secuencia.
+    private static long reproducir(FileChannel canal, File archivo, long desde, ConsumidorMutacion destino)
+            throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal.position(0))));
+        if (in.readInt() != MAGICO || in.readInt() != VERSION) {
+            throw new IOException(archivo + " no es una bitacora de esta version");
+        }
+        long ultima = desde;
+        long valido = CABECERA;
+        long tamano = canal.size();
+        while (valido + 8 <= tamano) {
+            int largo = in.readInt();
+            int crc = in.readInt();
+            if (largo < 13 || largo > tamano - valido - 8) {
+                break;
+            }
+            byte[] datos = new byte[largo];
+            in.readFully(datos);
+            CRC32 suma = new CRC32();
+            suma.update(datos);
+            if ((int) suma.getValue() != crc) {
+                break;
+            }
+            ByteBuffer registro = ByteBuffer.wrap(datos);
+            long secuencia = registro.getLong();
+            byte tipo = registro.get();
+            String a = texto(registro);
+            String b = registro.hasRemaining() ? texto(registro) : null;
+            if (secuencia > desde) {
+                destino.aplicar(tipo, a, b);
+            }
+            ultima = Math.max(ultima, secuencia);
+            valido += 8 + largo;
+        }
+        if (valido < tamano) {
+            canal.truncate(valido);
+            canal.force(true);
+        }
+        return ultima;
+    }
 
-    //Metodo Constructor
-    public AdjacencyListGraph() {
-        adjacencyMap = new HashMap<>();
+    private static String texto(ByteBuffer registro) {
+        byte[] bytes = new byte[registro.getInt()];
+        registro.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
-    //Metodo add
-    public boolean add(T vertex) {
-        //Verificamos si el vertice que queremos agregar ya pertenece al HashMap.
-        if (!contains(vertex)) {
-            //Si no pertenece es agregado al HashMap y se retorna true.
-            adjacencyMap.put(vertex, new ArrayList<>());
-            return true;
+    //Lanza si el hilo escritor ya fallo; se llama antes de aplicar la mutacion en memoria.
+    public void revisar() {
+        if (error != null) {
+            throw new UncheckedIOException(new IOException("La bitacora dejo de escribirse", error));
         }
-        //Si pertenece se retorna false.
-        return false;
     }
 
-    //Metodo Connect
-    public boolean connect(T from, T to) {
-        //Verificamos si los vertices from y to pertenecen al HashMap.
-        if (contains(from) && contains(to)) {
-            /**Buscamos la lista de los sucesores del vertice from usando el metodo 
-             * .get() del HashMap.*/
-            List<T> sucesores = adjacencyMap.get(from);
-            //Verificamos los sucesores para ver si el arco from-to ya existe.
-            if (!sucesores.contains(to)) {
-                //Si no existe lo agregamos usando .add
-                sucesores.add(to);
-                return true;
+    /**Anota una mutacion y devuelve su secuencia, sin esperar a que llegue al disco. No
+     * lanza: el error del escritor se ve con revisar() antes de mutar, y si llega despues
+     * lo informa sincronizar() o cerrar().*/
+    public long registrar(byte tipo, String a, String b) {
+        byte[] bytesA = a.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesB = b == null ? null : b.getBytes(StandardCharsets.UTF_8);
+        int largo = 13 + bytesA.length + (bytesB == null ? 0 : 4 + bytesB.length);
+        ByteBuffer registro = ByteBuffer.allocate(8 + largo);
+        registro.putInt(largo).putInt(0).putLong(siguiente).put(tipo).putInt(bytesA.length).put(bytesA);
+        if (bytesB != null) {
+            registro.putInt(bytesB.length).put(bytesB);
+        }
+        CRC32 suma = new CRC32();
+        suma.update(registro.array(), 8, largo);
+        registro.putInt(4, (int) suma.getValue());
+        cola.add(new Pendiente(siguiente, registro.array(), null, null));
+        return siguiente++;
+    }
+
+    public long ultimaSecuencia() {
+        return siguiente - 1;
+    }
+
+    /**Pide escribir como instantanea el grafo que entrega congelado, que debe incluir todo
+     * lo anotado hasta ahora. Lo hace el hilo escritor en su turno: arma el grafo, escribe
+     * la instantanea y despues vacia la bitacora; mientras tanto los registros nuevos
+     * esperan en la cola. Si cae entre los dos pasos, la secuencia guardada en la
+     * instantanea hace que al recuperar se salten los registros que ya estaban incluidos.*/
+    public void compactar(Supplier<? extends IndexedGraph<String>> congelado, File instantanea) {
+        cola.add(new Pendiente(siguiente - 1, null, congelado, instantanea));
+    }
+
+    //Espera a que todo lo anotado hasta ahora este en disco.
+    public void sincronizar() throws IOException {
+        long objetivo = siguiente - 1;
+        synchronized (this) {
+            while (durable < objetivo && error == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrumpido esperando la bitacora");
+                }
             }
         }
-        /**Si alguno de los vertices (from o to) no pertenecen al HashMap, o
-         * el arco from-to ya existe entonces se retorna false.*/
-        return false;
+        if (error != null) {
+            throw new IOException("La bitacora dejo de escribirse", error);
+        }
     }
 
-    //Metodo Disconnect
-    public boolean disconnect(T from, T to) {
-        //Verificamos si los vertices from y to pertenecen al HashMap.
-        if (contains(from) && contains(to)) {
-            /**Buscamos la lista de los sucesores del vertice from usando el metodo
-             * .get() del HashMap.*/
-            List<T> sucesores = adjacencyMap.get(from);
-            /**Usamos el metodo .remove() de los ArrayList para eliminar el arco from-to.
-             * Esta llamada devuelve true si el elemento se encontraba en la lista y se 
-             * eliminó exitosamente, y devuelve false si el elemento no se encontraba en
-             *  la lista*/
-            return sucesores.remove(to);
+    //Escribe lo pendiente, detiene el hilo escritor y cierra el archivo.
+    public void cerrar() throws IOException {
+        cola.add(FIN);
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return false;
+        canal.close();
+        if (error != null) {
+            throw new IOException("La bitacora dejo de escribirse", error);
+        }
+    }
+
+    //Hilo escritor: una escritura y un force() por cada tanda que encuentra en la cola.
+    private void escribir() {
+        List<Pendiente> tanda = new ArrayList<>();
+        ByteBuffer bufer = ByteBuffer.allocate(TANDA);
+        try {
+            boolean fin = false;
+            while (!fin) {
+                tanda.clear();
+                tanda.add(cola.take());
+                cola.drainTo(tanda);
+                long ultima = -1;
+                for (Pendiente pendiente : tanda) {
+                    if (pendiente == FIN) {
+                        fin = true;
+                    } else if (pendiente.congelado != null) {
+                        volcar(bufer);
+                        canal.force(false);
+                        MappedGraph.guardar(pendiente.congelado.get(), pendiente.instantanea, pendiente.secuencia);
+                        canal.truncate(CABECERA);
+                        canal.position(CABECERA);
+                    } else if (pendiente.registro.length > bufer.remaining()) {
+                        volcar(bufer);
+                        if (pendiente.registro.length > bufer.capacity()) {
+                            ByteBuffer grande = ByteBuffer.wrap(pendiente.registro);
+                            while (grande.hasRemaining()) {
+                                canal.write(grande);
+                            }
+                        } else {
+                            bufer.put(pendiente.registro);
+                        }
+                        ultima = pendiente.secuencia;
+                    } else {
+                        bufer.put(pendiente.registro);
+                        ultima = pendiente.secuencia;
+                    }
+                }
+                volcar(bufer);
+                canal.force(false);
+                synchronized (this) {
+                    durable = Math.max(durable, ultima);
+                    notifyAll();
+                }
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            error = e;
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    private void volcar(ByteBuffer bufer) throws IOException {
+        bufer.flip();
+        while (bufer.hasRemaining()) {
+            canal.write(bufer);
+        }
+        bufer.clear();
+    }
+}
+
+/**Grafo de nombres que sobrevive a una caida. La base es una instantanea mapeada (o el
+ * CSRGraph de la ultima compactacion) que nunca se modifica; los cambios van a una capa
+ * encima que copia las filas de un vertice la primera vez que se tocan, y cada mutacion
+ * que tiene efecto se anota en una BitacoraMutaciones. Recuperar es abrir la instantanea
+ * y reproducir solo las mutaciones posteriores, asi que tarda segun cuantas hubo desde la
+ * ultima compactacion y no segun el tamano del grafo. Cada compactarCada mutaciones el
+ * hilo de la bitacora congela una copia de la capa en un CSRGraph, lo guarda como
+ * instantanea nueva y este pasa a ser la base; las mutaciones no esperan ese trabajo.
+ * Como AdjacencyListGraph, es para un solo hilo.*/
+class GrafoDurable implements Graph<String> {
+    private IndexedGraph<String> base;
+    private final File instantanea;
+    private final int compactarCada;
+    private BitacoraMutaciones bitacora;
+    private int cambios;
+    //Compactacion pedida y todavia sin tomar como base, con lo anotado despues de pedirla.
+    private CompletableFuture<CSRGraph<String>> compactacion;
+    private final List<Mutacion> posteriores = new ArrayList<>();
+    //Vertices agregados despues de la base: sus ids siguen a los de la base.
+    private final Map<String, Integer> nuevos = new HashMap<>();
+    private final List<String> nombresNuevos = new ArrayList<>();
+    //Filas copiadas al modificarse; las que no estan aqui se leen de la base.
+    private final Map<Integer, List<Integer>> salidas = new HashMap<>();
+    private final Map<Integer, List<Integer>> entradas = new HashMap<>();
+    private final Set<Integer> quitados = new HashSet<>();
+
+    private GrafoDurable(IndexedGraph<String> base, File instantanea, int compactarCada) {
+        this.base = base;
+        this.instantanea = instantanea;
+        this.compactarCada = compactarCada;
+    }
+
+    //Recupera el grafo: la instantanea mas las mutaciones de la bitacora que no incluye.
+    public static GrafoDurable abrir(File instantanea, File bitacora, int compactarCada) throws IOException {
+        MappedGraph base = MappedGraph.abrir(instantanea);
+        GrafoDurable grafo = new GrafoDurable(base, instantanea, compactarCada);
+        grafo.bitacora = BitacoraMutaciones.abrir(bitacora, base.getSecuencia(), grafo::aplicar);
+        return grafo;
+    }
+
+    //Aplica una mutacion sin anotarla; es lo que usa la reproduccion de la bitacora.
+    private boolean aplicar(byte tipo, String a, String b) {
+        switch (tipo) {
+            case BitacoraMutaciones.AGREGAR:
+                return agregar(a);
+            case BitacoraMutaciones.CONECTAR:
+                return conectar(a, b);
+            case BitacoraMutaciones.DESCONECTAR:
+                return desconectar(a, b);
+            case BitacoraMutaciones.QUITAR:
+                return quitar(a);
+            default:
+                return false;
+        }
+    }
+
+    /**Aplica la mutacion y la anota si tuvo efecto, compactando cuando se juntan
+     * compactarCada. Si la bitacora ya fallo lanza antes de tocar el grafo, para no dejar
+     * en memoria un cambio que no se va a poder recuperar.*/
+    private boolean anotar(byte tipo, String a, String b) {
+        bitacora.revisar();
+        boolean cambio = aplicar(tipo, a, b);
+        if (cambio) {
+            bitacora.registrar(tipo, a, b);
+            if (compactacion != null) {
+                posteriores.add(new Mutacion(tipo, a, b));
+                if (compactacion.isDone()) {
+                    cambiarBase();
+                }
+            } else if (++cambios >= compactarCada) {
+                compactar();
+            }
+        }
+        return cambio;
+    }
+
+    //Una mutacion que tuvo efecto, guardada para repetirla sobre otra base.
+    private static class Mutacion {
+        private final byte tipo;
+        private final String a;
+        private final String b;
+
+        Mutacion(byte tipo, String a, String b) {
+            this.tipo = tipo;
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    public boolean add(String vertex) {
+        return anotar(BitacoraMutaciones.AGREGAR, vertex, null);
+    }
+
+    public boolean connect(String from, String to) {
+        return anotar(BitacoraMutaciones.CONECTAR, from, to);
+    }
+
+    public boolean disconnect(String from, String to) {
+        return anotar(BitacoraMutaciones.DESCONECTAR, from, to);
+    }
+
+    public boolean remove(String vertex) {
+        return anotar(BitacoraMutaciones.QUITAR, vertex, null);
+    }
+
+    //Espera a que las mutaciones hechas hasta ahora esten en disco.
+    public void sincronizar() throws IOException {
+        bitacora.sincronizar();
+    }
+
+    public void cerrar() throws IOException {
+        bitacora.cerrar();
+    }
+
+    /**Pide congelar el estado actual como base nueva. Aqui solo se copia la capa, que
+     * crece con los cambios y no con el grafo; el CSRGraph lo arma el hilo de la bitacora
+     * con esa copia y la base vieja, que no se modifican, y despues lo guarda como
+     * instantanea. Mientras tanto se sigue mutando sobre la base vieja, y la primera
+     * mutacion despues de que el CSRGraph esta listo lo toma como base. Si ya hay una
+     * compactacion pedida no hace nada.*/
+    public void compactar() {
+        if (compactacion != null) {
+            return;
+        }
+        IndexedGraph<String> vieja = base;
+        List<String> nombres = new ArrayList<>(nombresNuevos);
+        Map<Integer, List<Integer>> filas = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> fila : salidas.entrySet()) {
+            filas.put(fila.getKey(), new ArrayList<>(fila.getValue()));
+        }
+        Set<Integer> fuera = new HashSet<>(quitados);
+        CompletableFuture<CSRGraph<String>> pedida = new CompletableFuture<>();
+        compactacion = pedida;
+        cambios = 0;
+        bitacora.compactar(() -> {
+            try {
+                CSRGraph<String> congelado = congelar(vieja, nombres, filas, fuera);
+                pedida.complete(congelado);
+                return congelado;
+            } catch (RuntimeException e) {
+                pedida.completeExceptionally(e);
+                throw e;
+            }
+        }, instantanea);
+    }
+
+    /**Toma como base el CSRGraph de la compactacion y repite encima, en una capa vacia, lo
+     * anotado despues de pedirla: cuesta segun esas mutaciones y no segun el grafo. Si no
+     * se pudo armar, la capa actual sigue siendo correcta y se queda como esta.*/
+    private void cambiarBase() {
+        CompletableFuture<CSRGraph<String>> hecha = compactacion;
+        compactacion = null;
+        if (!hecha.isCompletedExceptionally()) {
+            base = hecha.join();
+            nuevos.clear();
+            nombresNuevos.clear();
+            salidas.clear();
+            entradas.clear();
+            quitados.clear();
+            for (Mutacion mutacion : posteriores) {
+                aplicar(mutacion.tipo, mutacion.a, mutacion.b);
+            }
+            cambios = posteriores.size();
+        }
+        posteriores.clear();
+    }
+
+    //El estado actual como CSRGraph, con los ids renumerados sin los vertices quitados.
+    public CSRGraph<String> congelar() {
+        return congelar(base, nombresNuevos, salidas, quitados);
+    }
+
+    //Arma el CSRGraph de una base con su capa; solo lee, asi que sirve desde otro hilo.
+    private static CSRGraph<String> congelar(IndexedGraph<String> base, List<String> nombresNuevos,
+            Map<Integer, List<Integer>> salidas, Set<Integer> quitados) {
+        int total = base.vertexCount() + nombresNuevos.size();
+        int[] nuevoId = new int[total];
+        CSRGraph.Builder<String> builder = new CSRGraph.Builder<>();
+        for (int v = 0; v < total; v++) {
+            if (quitados.contains(v)) {
+                nuevoId[v] = -1;
+            } else {
+                nuevoId[v] = builder.add(v < base.vertexCount() ? base.vertexAt(v)
+                        : nombresNuevos.get(v - base.vertexCount()));
+            }
+        }
+        for (int v = 0; v < total; v++) {
+            if (nuevoId[v] < 0) {
+                continue;
+            }
+            List<Integer> fila = salidas.get(v);
+            if (fila != null) {
+                for (int w : fila) {
+                    builder.connectIds(nuevoId[v], nuevoId[w]);
+                }
+            } else {
+                for (int i = base.outStart(v); i < base.outEnd(v); i++) {
+                    builder.connectIds(nuevoId[v], nuevoId[base.outTarget(i)]);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private int idDe(String vertex) {
+        int v = base.idOf(vertex);
+        if (v < 0) {
+            Integer nuevo = nuevos.get(vertex);
+            if (nuevo == null) {
+                return -1;
+            }
+            v = nuevo;
+        }
+        return quitados.contains(v) ? -1 : v;
+    }
+
+    private String nombre(int v) {
+        return v < base.vertexCount() ? base.vertexAt(v) : nombresNuevos.get(v - base.vertexCount());
+    }
+
+    //La fila de v lista para modificarse: la primera vez se copia de la base.
+    private List<Integer> salidaEditable(int v) {
+        return salidas.computeIfAbsent(v, k -> copiarDeBase(k, true));
+    }
+
+    private List<Integer> entradaEditable(int v) {
+        return entradas.computeIfAbsent(v, k -> copiarDeBase(k, false));
+    }
+
+    private List<Integer> copiarDeBase(int v, boolean salida) {
+        List<Integer> fila = new ArrayList<>();
+        if (v < base.vertexCount()) {
+            int inicio = salida ? base.outStart(v) : base.inStart(v);
+            int fin = salida ? base.outEnd(v) : base.inEnd(v);
+            for (int i = inicio; i < fin; i++) {
+                fila.add(salida ? base.outTarget(i) : base.inSource(i));
+            }
+        }
+        return fila;
+    }
+
+    private boolean agregar(String vertex) {
+        int v = base.idOf(vertex);
+        if (v < 0 && nuevos.containsKey(vertex)) {
+            v = nuevos.get(vertex);
+        }
+        if (v >= 0) {
+            //Un vertice quitado vuelve sin arcos: sus filas quedaron vacias al quitarlo.
+            return quitados.remove(v);
+        }
+        v = base.vertexCount() + nombresNuevos.size();
+        nuevos.put(vertex, v);
+        nombresNuevos.add(vertex);
+        salidas.put(v, new ArrayList<>());
+        entradas.put(v, new ArrayList<>());
+        return true;
+    }
+
+    private boolean conectar(String from, String to) {
+        int u = idDe(from);
+        int v = idDe(to);
+        if (u < 0 || v < 0) {
+            return false;
+        }
+        List<Integer> sucesores = salidaEditable(u);
+        if (sucesores.contains(v)) {
+            return false;
+        }
+        sucesores.add(v);
+        entradaEditable(v).add(u);
+        return true;
+    }
+
+    private boolean desconectar(String from, String to) {
+        int u = idDe(from);
+        int v = idDe(to);
+        if (u < 0 || v < 0 || !salidaEditable(u).remove(Integer.valueOf(v))) {
+            return false;
+        }
+        entradaEditable(v).remove(Integer.valueOf(u));
+        return true;
+    }
+
+    private boolean quitar(String vertex) {
+        int v = idDe(vertex);
+        if (v < 0) {
+            return false;
+        }
+        for (int w : salidaEditable(v)) {
+            if (w != v) {
+                entradaEditable(w).remove(Integer.valueOf(v));
+            }
+        }
+        for (int u : entradaEditable(v)) {
+            if (u != v) {
+                salidaEditable(u).remove(Integer.valueOf(v));
+            }
+        }
+        salidas.put(v, new ArrayList<>());
+        entradas.put(v, new ArrayList<>());
+        quitados.add(v);
+        return true;
     }
 
     //Metodo Contains
-    public boolean contains(T vertex) {
-        /**Usamos el método .containsKey() propio de la clase HashMap para verificar si 
-         * la clave vertex está presente en el mapa. Si lo esta retorna true, si no
-         * retorna false.*/
-        boolean x = adjacencyMap.containsKey(vertex);
-        return x;
+    public boolean contains(String vertex) {
+        return idDe(vertex) >= 0;
     }
 
-    //Metodo GetInwardEdges
-    public List<T> getInwardEdges(T to) {
-        /**Creamos una lista nueva para almacenar los vértices que tienen arcos 
-         * hacia el vertice to.*/
-        List<T> predecesores = new ArrayList<>();
-        /**Usamos el metodo .keyset() de la clase HashMap para iterar sobre todos los 
-         * vertices del mapa.*/
-        for (T vertex : adjacencyMap.keySet()) {
-            /**Buscamos la lista de los sucesores del vertice vertex usando el metodo 
-             * .get() del HashMap.*/
-            List<T> sucesores = adjacencyMap.get(vertex);
-            /**Usamos el metodo .contains() de la clase ArrayList para verificar si la 
-             * lista de sucesores contiene al vertice to.*/
-            if (sucesores.contains(to)) {
-                /**Si es asi, entonces vertex es un predecesor de to, por lo que lo 
-                 * agregamos a la lista predecesores.*/
-                predecesores.add(vertex);
+    //Nombres de una fila: la copia si ya se modifico, si no el tramo de la base.
+    private List<String> fila(int v, boolean salida) {
+        List<String> vecinos = new ArrayList<>();
+        List<Integer> copia = salida ? salidas.get(v) : entradas.get(v);
+        if (copia != null) {
+            for (int w : copia) {
+                vecinos.add(nombre(w));
+            }
+        } else {
+            int inicio = salida ? base.outStart(v) : base.inStart(v);
+            int fin = salida ? base.outEnd(v) : base.inEnd(v);
+            for (int i = inicio; i < fin; i++) {
+                vecinos.add(nombre(salida ? base.outTarget(i) : base.inSource(i)));
             }
         }
-        return predecesores;
+        return vecinos;
+    }
+
+    //Metodo GetInwardEdges
+    public List<String> getInwardEdges(String to) {
+        int v = idDe(to);
+        if (v < 0) {
+            return new ArrayList<>();
+        }
+        return fila(v, false);
     }
 
     //Metodo GetOutwardEdges
-    public List<T> getOutwardEdges(T from) {
-        //Usamos contains() para verificar que el vertice from pertenezca al HashMap.
-        if (contains(from)) {
-            /**Si pertenece, usamos el metodo .get() de la clase HashMap para retornar
-             * la lista de sucesores del vertice from.*/
-            return adjacencyMap.get(from);
+    public List<String> getOutwardEdges(String from) {
+        int v = idDe(from);
+        if (v < 0) {
+            return new ArrayList<>();
         }
-        //Si vertex no pertenece al HashMap se retorna un ArrayList vacio.
-        return new ArrayList<>();
+        return fila(v, true);
     }
 
     //Metodo GetVerticesConnectedTo
-    public List<T> getVerticesConnectedTo(T vertex) {
-        //Usamos contains() para verificar que el vertice vertex pertenezca al HashMap.
+    public List<String> getVerticesConnectedTo(String vertex) {
         if (contains(vertex)) {
-            /**Creamos un conjunto nuevo para almacenar los vértices que estan conectados
-             * al vertice vertex e introducimos los sucesores*/
-            Set<T> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
-            //Se agregan los predecesores.
+            Set<String> adjacentVertex = new HashSet<>(getOutwardEdges(vertex));
             adjacentVertex.addAll(getInwardEdges(vertex));
-            //Se retorna el conjunto como lista.
             return new ArrayList<>(adjacentVertex);
         }
-        //Si vertex no pertenece al HashMap se retorna un ArrayList vacio.
         return new ArrayList<>();
     }
 
     //Metodo GetAllVertices
-    public List<T> getAllVertices() {
-        /**Usamos el metodo .keyset() de la clase HashMap para devolver un ArrayList 
-         * con todos los elementos dentro del HashMap */
-        return new ArrayList<>(adjacencyMap.keySet());
-    }
-
-    //Metodo Remove
-    public boolean remove(T vertex) {
-        //Usamos contains() para verificar que el vertice vertex pertenezca al HashMap.
-        if (contains(vertex)) {
-            /**Si el vertice vertex pertenece, usamos el metodo .remove() de la clase
-             * HashMap para eliminarlo.*/
-            adjacencyMap.remove(vertex);
-            /**Usamos el metodo .values() de la clase HashMap para iterar sobre todos
-             * los valores del HashMap.*/
-            for (List<T> sucesores : adjacencyMap.values()) {
-                /**Usamos el método .remove() en cada lista de sucesores para eliminar 
-                 * el vértice vertex de todas las listas de sucesores.*/
-                sucesores.remove(vertex);
+    public List<String> getAllVertices() {
+        List<String> todos = new ArrayList<>(size());
+        for (int v = 0; v < base.vertexCount() + nombresNuevos.size(); v++) {
+            if (!quitados.contains(v)) {
+                todos.add(nombre(v));
             }
-            return true;
         }
-        //Si el vertice vertex no pertenece se retorna false.
-        return false;
+        return todos;
     }
 
     //Metodo Size
     public int size() {
-        //Usamos el metodo .size() de la clase HashMap.
-        return adjacencyMap.size();
+        return base.vertexCount() + nombresNuevos.size() - quitados.size();
     }
 
-    //Metodo Subgraph
-    public Graph<T> subgraph(Collection<T> vertices) {
-        //Creamos un nuevo objeto tipo Graph<T>.
-        Graph<T> subgraph = new AdjacencyListGraph<>();
-        //Iteramos sobre la collection de vertices tipo T.
-        for (T vertex : vertices) {
-            //Usamos contains para verificar si el vertice vertex pertenece al grafo original.
+    //Metodo Subgraph: el subgrafo se arma en memoria como un CSRGraph, sin bitacora.
+    public Graph<String> subgraph(Collection<String> vertices) {
+        CSRGraph.Builder<String> builder = new CSRGraph.Builder<>();
+        for (String vertex : vertices) {
             if (contains(vertex)) {
-                //Si pertenece agregamos el vertice vertex a los vertices del subgrafo.
-                subgraph.add(vertex);
-                //Usamos el metodo getOutwardEdges para conseguir los sucesores de vertex.
-                List<T> sucesores = getOutwardEdges(vertex);
-                //Iteramos sobre cada sucesor de vertex.
-                for (T sucesor : sucesores) {
-                    //Verificamos si la collection vertices contiene a sucesor.
+                builder.add(vertex);
+            }
+        }
+        for (String vertex : vertices) {
+            if (contains(vertex)) {
+                for (String sucesor : getOutwardEdges(vertex)) {
                     if (vertices.contains(sucesor)) {
-                        //Si el sucesor pertenece, lo agregamos al subgrafo y conectamos.
-                        subgraph.add(sucesor);
-                        subgraph.connect(vertex, sucesor);
+                        builder.connect(vertex, sucesor);
                     }
                 }
             }
         }
-        return subgraph;
+        return builder.build();
     }
-
 }
 
 class Comercio {
@@ -352,7 +3121,169 @@ public class NextToYou {
         System.out.println(total);
     }
 
+    //Costo de los repartidores de una zona segun cuantos comercios tiene.
+    public static int costoZona(int comercios) {
+        if (comercios < 3) {
+            return 10;
+        } else if (comercios < 6) {
+            return 20;
+        }
+        return 30;
+    }
+
+    /**Version lineal de compConex: calcula las componentes fuertes con Tarjan sobre el
+     * grafo congelado, sin tocarlo, y suma el costo de cada zona. Devuelve el total.*/
+    public static int repartidores(IndexedGraph<String> graph) {
+        return repartidores(ComponentesFuertes.de(graph));
+    }
+
+    //Suma el costo de cada zona, sin importar con que metodo se calcularon las componentes.
+    public static int repartidores(ComponentesFuertes componentes) {
+        int total = 0;
+        for (int c = 0; c < componentes.getCantidad(); c++) {
+            total = total + costoZona(componentes.getTamano(c));
+        }
+        return total;
+    }
+
+    /**compConex con el estado del recorrido en un EstadoRecorrido propio en lugar de los
+     * campos de Comercio: las mismas dos pasadas de DFS, pero la segunda recorre los
+     * predecesores en vez de invertir los arcos, asi el grafo no cambia y se puede
+     * compartir entre hilos. Devuelve el total de repartidores.*/
+    public static int compConex(IndexedGraph<String> graph) {
+        return zonas(graph).getTotal();
+    }
+
+    /**Las zonas de compConex como conjuntos disjuntos: en lugar de numeroCC, que vuelve a
+     * recorrer todo el grafo por cada miembro, cada vertice se une con su predecesor del
+     * bosque de zonas. Los conjuntos quedan listos para unir zonas con enlaces nuevos.*/
+    public static ConjuntosDisjuntos zonas(IndexedGraph<String> graph) {
+        EstadoRecorrido estado = new EstadoRecorrido(graph.vertexCount());
+        estado.dfsVisita(graph);
+        estado.zonas(graph);
+        return ConjuntosDisjuntos.deZonas(estado, graph.vertexCount());
+    }
+
+    /**Lee Caracas.txt: cada linea "a, b" es un camino del comercio a al comercio b. El
+     * archivo se recorre con CargadorAristas y los arcos van directo al Builder por id.*/
+    public static CSRGraph<String> leerCaracas(File inputFile) throws IOException {
+        CargaParalela carga = CargaParalela.cargar(inputFile, ", ", 2);
+        //Los ids de la carga son densos y en orden de aparicion, igual que los del Builder.
+        CSRGraph.Builder<String> builder = new CSRGraph.Builder<>();
+        for (String nombre : carga.getNombres()) {
+            builder.add(nombre);
+        }
+        builder.connectIds(carga.getFrom(), carga.getTo(), carga.getCantidad());
+        return builder.buildParalelo();
+    }
+
+    /**Abre la instantanea binaria de la ciudad. La escribe antes si no existe, si el
+     * texto cambio despues de escribirla o si es de otra version del formato.*/
+    public static MappedGraph abrirInstantanea(File texto, File instantanea) throws IOException {
+        if (instantanea.exists() && instantanea.lastModified() >= texto.lastModified()) {
+            try {
+                return MappedGraph.abrir(instantanea);
+            } catch (IOException e) {
+                System.err.println("Se vuelve a escribir " + instantanea + ": " + e.getMessage());
+            }
+        }
+        MappedGraph.guardar(leerCaracas(texto), instantanea);
+        return MappedGraph.abrir(instantanea);
+    }
+
+    //Mutaciones del modo durable entre una compactacion y la siguiente.
+    private static final int COMPACTAR_CADA = 1 << 16;
+
+    /**Modo dinamico: parte de Caracas.txt y luego lee cambios del archivo indicado, o de
+     * la entrada estandar si no se indica o es "-". Una linea "a, b" agrega el camino y
+     * "- a, b" lo quita; despues de cada cambio se imprime el total de repartidores.
+     * Con --durable la ciudad vive en un GrafoDurable sobre Caracas.durable y
+     * Caracas.bitacora: al arrancar se recupera de ahi (Caracas.txt solo se lee la
+     * primera vez) y cada cambio queda anotado en la bitacora. Lo que no se guarda son
+     * las zonas: se vuelven a calcular con Tarjan sobre la ciudad congelada, asi que
+     * arrancar sigue costando O(V + E) aunque recuperar el grafo no.*/
+    public static void dinamico(String[] args) throws IOException {
+        GrafoDurable ciudad = null;
+        ZonasDinamicas zonas;
+        if (args[0].equals("--durable")) {
+            File instantanea = new File("Caracas.durable");
+            if (!instantanea.exists()) {
+                MappedGraph.guardar(leerCaracas(new File("Caracas.txt")), instantanea);
+            }
+            ciudad = GrafoDurable.abrir(instantanea, new File("Caracas.bitacora"), COMPACTAR_CADA);
+            zonas = ZonasDinamicas.de(ciudad.congelar());
+        } else {
+            zonas = ZonasDinamicas.de(leerCaracas(new File("Caracas.txt")));
+        }
+        System.out.println(zonas.getTotal());
+        BufferedReader reader;
+        if (args.length < 2 || args[1].equals("-")) {
+            reader = new BufferedReader(new InputStreamReader(System.in));
+        } else {
+            reader = new BufferedReader(new FileReader(args[1]));
+        }
+        String lines;
+        while ((lines = reader.readLine()) != null) {
+            boolean quitar = lines.startsWith("- ");
+            String[] names = (quitar ? lines.substring(2) : lines).split(", ");
+            if (names.length == 2) {
+                if (quitar) {
+                    zonas.desconectar(names[0], names[1]);
+                } else {
+                    zonas.conectar(names[0], names[1]);
+                }
+                if (ciudad != null) {
+                    if (quitar) {
+                        ciudad.disconnect(names[0], names[1]);
+                    } else {
+                        ciudad.add(names[0]);
+                        ciudad.add(names[1]);
+                        ciudad.connect(names[0], names[1]);
+                    }
+                }
+                System.out.println(zonas.getTotal());
+            }
+        }
+        reader.close();
+        if (ciudad != null) {
+            ciudad.cerrar();
+        }
+    }
+
     public static void main(String[] args) {
+        if (args.length > 0 && (args[0].equals("--dinamico") || args[0].equals("--durable"))) {
+            try {
+                dinamico(args);
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
+        /**Con --tarjan las zonas salen de las componentes fuertes calculadas en una pasada,
+         * con --kosaraju de las dos pasadas de compConex sobre estado aparte y con
+         * --paralelo del metodo forward-backward en varios hilos. --instantanea usa Tarjan
+         * sobre la ciudad mapeada desde Caracas.grafo en lugar de leer el texto.*/
+        if (args.length > 0 && (args[0].equals("--tarjan") || args[0].equals("--kosaraju")
+                || args[0].equals("--paralelo") || args[0].equals("--instantanea"))) {
+            IndexedGraph<String> ciudad;
+            try {
+                if (args[0].equals("--instantanea")) {
+                    ciudad = abrirInstantanea(new File("Caracas.txt"), new File("Caracas.grafo"));
+                } else {
+                    ciudad = leerCaracas(new File("Caracas.txt"));
+                }
+            } catch (IOException e) {
+                return;
+            }
+            if (args[0].equals("--tarjan") || args[0].equals("--instantanea")) {
+                System.out.println(repartidores(ciudad));
+            } else if (args[0].equals("--paralelo")) {
+                System.out.println(repartidores(ComponentesParalelas.de(ciudad)));
+            } else {
+                System.out.println(compConex(ciudad));
+            }
+            return;
+        }
         Graph<Comercio> graph = new AdjacencyListGraph<>();
         try {
             File inputFile = new File("Caracas.txt");